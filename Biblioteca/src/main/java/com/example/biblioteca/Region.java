@@ -8,6 +8,7 @@
  * - Armazenamento e recuperação do nome, latitude, longitude, timestamp e usuário associado a uma região.
  * - Implementação de métodos para obter e definir essas informações.
  * - Implementação de métodos equals() e hashCode() para comparar objetos Region.
+ * - Cálculo da distância (em metros) entre a região e uma coordenada, com verificação rápida de raio.
  *
  * Autor: Leonardo Monteiro
  * Data: 05/04/2024
@@ -24,7 +25,13 @@ public class Region {
     private double longitude;
     private Long timestamp;
     private int user;
+    private transient String storageKey; // Chave do registro no servidor, quando já atribuída
+    private transient double cosLatitude = Double.NaN; // cos(latitude) calculado sob demanda
     private static final double R = 6371000; // Raio da Terra em metros
+    static final double METERS_PER_DEGREE = Math.toRadians(1) * R; // Também usado pelo RegionGridIndex
+    private static final double FAST_PATH_MAX_METERS = 1000; // Aproximação equirretangular só para raios pequenos
+    private static final double FAST_PATH_MAX_LATITUDE = 80; // Acima disso o cos(latitude) varia demais entre os pontos
+    private static final double FAST_PATH_MARGIN = 0.01; // Margem de 1% em torno do raio antes do haversine
 
     public Region(String name, double latitude, double longitude,Long timestamp, int user) {
         this.name = name;
@@ -49,6 +56,7 @@ public class Region {
     }
     public void setLatitude(double latitude) {
         this.latitude = latitude;
+        this.cosLatitude = Double.NaN;
     }
 
     public double getLongitude() {
@@ -58,6 +66,24 @@ public class Region {
         this.longitude = longitude;
     }
 
+    /**
+     * Retorna a chave do registro desta região no servidor, ou null se ela ainda não foi atribuída.
+     * O nome não segue o padrão getX para que a chave não seja serializada junto com os atributos da região.
+     */
+    public String storageKey() {
+        return storageKey;
+    }
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    /**
+     * Retorna o tipo desta região. Subclasses sobrescrevem este método.
+     */
+    public RegionKind kind() {
+        return RegionKind.REGION;
+    }
+
     @Override
     /**
      * Verifica se este objeto Region é igual a outro objeto.
@@ -87,20 +113,107 @@ public class Region {
     public int hashCode() {
         return Objects.hash(name, latitude, longitude);
     }
+    /**
+     * Calcula a distância, em metros, entre esta região e a coordenada informada (fórmula de haversine).
+     *
+     * @param latitude  A latitude da coordenada.
+     * @param longitude A longitude da coordenada.
+     * @return A distância em metros.
+     */
+    public double distanceMeters(double latitude, double longitude) {
+        return haversine(this.latitude, this.longitude, cosLatitude(), latitude, longitude, Math.cos(Math.toRadians(latitude)));
+    }
+
+    public double distanceMeters(Region other) {
+        return haversine(latitude, longitude, cosLatitude(), other.latitude, other.longitude, other.cosLatitude());
+    }
+
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        return haversine(lat1, lon1, Math.cos(Math.toRadians(lat1)), lat2, lon2, Math.cos(Math.toRadians(lat2)));
+    }
+
+    /**
+     * Verifica se a coordenada informada está a menos de radiusMeters metros desta região.
+     * Para raios pequenos, usa primeiro a aproximação equirretangular (com o cos(latitude) em cache),
+     * que decide a maioria dos casos sem funções trigonométricas. Apenas pontos próximos da borda do raio
+     * recorrem ao haversine. A aproximação usa o cos(latitude) desta região e não o da latitude média; com
+     * raios de até 1 km e latitudes de até 80 graus o erro fica bem abaixo da margem de 1%. Perto dos polos,
+     * todos os casos usam o haversine.
+     *
+     * @param latitude     A latitude da coordenada.
+     * @param longitude    A longitude da coordenada.
+     * @param radiusMeters O raio, em metros.
+     * @return True se a distância for menor que radiusMeters, False caso contrário.
+     */
+    public boolean withinMeters(double latitude, double longitude, double radiusMeters) {
+        if (radiusMeters <= FAST_PATH_MAX_METERS
+                && Math.abs(this.latitude) <= FAST_PATH_MAX_LATITUDE && Math.abs(latitude) <= FAST_PATH_MAX_LATITUDE) {
+            double dy = (latitude - this.latitude) * METERS_PER_DEGREE;
+            double limit = radiusMeters * (1 + FAST_PATH_MARGIN);
+            if (dy > limit || dy < -limit) { // Rejeição pela caixa envolvente em latitude
+                return false;
+            }
+            double dLon = longitude - this.longitude;
+            if (dLon > 180) {
+                dLon -= 360;
+            } else if (dLon < -180) {
+                dLon += 360;
+            }
+            double dx = dLon * METERS_PER_DEGREE * cosLatitude();
+            double squared = dx * dx + dy * dy;
+            if (squared > limit * limit) {
+                return false;
+            }
+            double inner = radiusMeters * (1 - FAST_PATH_MARGIN);
+            if (squared < inner * inner) {
+                return true;
+            }
+        }
+        return distanceMeters(latitude, longitude) < radiusMeters;
+    }
+
+    public boolean withinMeters(Region other, double radiusMeters) {
+        return withinMeters(other.latitude, other.longitude, radiusMeters);
+    }
+
+    /**
+     * @deprecated Use {@link #distanceMeters(double, double, double, double)} ou {@link #withinMeters(double, double, double)}.
+     * Retorna true se a distância entre as coordenadas for maior que 30 metros.
+     */
+    @Deprecated
     public Boolean calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c;
-        if (distance > 30) {
-            return true;
+        return distanceMeters(lat1, lon1, lat2, lon2) > 30;
+    }
+
+    /**
+     * Retorna a região principal de uma SubRegion ou RestrictedRegion, ou null se a região informada for uma Region.
+     */
+    public static Region mainRegionOf(Region region) {
+        switch (region.kind()) {
+            case SUB_REGION:
+                return ((SubRegion) region).getMainRegion();
+            case RESTRICTED_REGION:
+                return ((RestrictedRegion) region).getMainRegion();
+            default:
+                return null;
         }
-        else{
-            return false;
+    }
+
+    private double cosLatitude() {
+        double cos = cosLatitude;
+        if (Double.isNaN(cos)) {
+            cos = Math.cos(Math.toRadians(latitude));
+            cosLatitude = cos;
         }
+        return cos;
+    }
+
+    private static double haversine(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinDLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinDLat * sinDLat + cosLat1 * cosLat2 * sinDLon * sinDLon;
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return R * c;
     }
 
 }
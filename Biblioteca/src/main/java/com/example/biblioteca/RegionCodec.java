@@ -0,0 +1,297 @@
+/**
+ * Codificação binária compacta de Region, SubRegion e RestrictedRegion.
+ *
+ * Formato (versão 1):
+ * - 1 byte de versão.
+ * - 1 byte de cabeçalho: tipo da região (bits 0-1), atributo restricted (bit 2) e forma de referência à
+ *   região principal (bits 3-4: nenhuma, por chave ou embutida).
+ * - latitude e longitude como double de 8 bytes.
+ * - timestamp e usuário como varint (zigzag), com o timestamp nulo representado por 0. Por isso, o timestamp
+ *   Long.MIN_VALUE não pode ser codificado.
+ * - nome como varint do tamanho em bytes (0 para nulo) seguido do texto em UTF-8.
+ * - para sub-regiões: a chave (storageKey) da região principal, no mesmo formato do nome. Se a região principal
+ *   ainda não tiver chave, ela é embutida com os mesmos campos de uma Region.
+ *
+ * A codificação escreve e lê diretamente em um ByteBuffer, sem representações intermediárias (JSON ou árvores).
+ * Na leitura, a região principal referenciada por chave é obtida por um MainRegionResolver, normalmente a partir
+ * dos registros já decodificados: as chaves das sub-regiões são prefixadas pela chave da região principal e, por isso,
+ * vêm depois dela na ordem do servidor.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class RegionCodec {
+
+    /**
+     * Fornece a região principal correspondente a uma chave, durante a decodificação de sub-regiões.
+     */
+    public interface MainRegionResolver {
+        /**
+         * @param storageKey A chave da região principal no servidor.
+         * @return A região principal, ou null se ela não for conhecida.
+         */
+        Region resolve(String storageKey);
+    }
+
+    public static final byte VERSION = 1;
+
+    private static final int KIND_REGION = 0;
+    private static final int KIND_SUB_REGION = 1;
+    private static final int KIND_RESTRICTED_REGION = 2;
+    private static final int KIND_MASK = 0x03;
+    private static final int RESTRICTED_FLAG = 0x04;
+    private static final int MAIN_BY_KEY = 0x08;
+    private static final int MAIN_EMBEDDED = 0x10;
+
+    private RegionCodec() {
+    }
+
+    /**
+     * Retorna o número exato de bytes ocupados pela região codificada.
+     */
+    public static int encodedSize(Region region) {
+        int size = 2 + baseSize(region);
+        Region mainRegion = Region.mainRegionOf(region);
+        if (mainRegion != null) {
+            size += mainRegion.storageKey() != null ? stringSize(mainRegion.storageKey()) : baseSize(mainRegion);
+        }
+        return size;
+    }
+
+    public static byte[] encode(Region region) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(region));
+        encode(region, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * Escreve a região na posição atual do buffer, que deve ter ao menos encodedSize(region) bytes restantes.
+     *
+     * @param region A região a ser codificada.
+     * @param out    O buffer de destino.
+     * @throws IllegalArgumentException Se o timestamp da região (ou da região principal embutida) for Long.MIN_VALUE.
+     */
+    public static void encode(Region region, ByteBuffer out) {
+        int header;
+        switch (region.kind()) {
+            case SUB_REGION:
+                header = KIND_SUB_REGION;
+                break;
+            case RESTRICTED_REGION:
+                header = KIND_RESTRICTED_REGION;
+                if (((RestrictedRegion) region).getRestricted()) {
+                    header |= RESTRICTED_FLAG;
+                }
+                break;
+            default:
+                header = KIND_REGION;
+                break;
+        }
+        Region mainRegion = Region.mainRegionOf(region);
+        checkTimestamp(region);
+        if (mainRegion != null) {
+            header |= mainRegion.storageKey() != null ? MAIN_BY_KEY : MAIN_EMBEDDED;
+            if (mainRegion.storageKey() == null) {
+                checkTimestamp(mainRegion);
+            }
+        }
+
+        out.put(VERSION);
+        out.put((byte) header);
+        writeBase(region, out);
+        if ((header & MAIN_BY_KEY) != 0) {
+            writeString(mainRegion.storageKey(), out);
+        } else if ((header & MAIN_EMBEDDED) != 0) {
+            writeBase(mainRegion, out);
+        }
+    }
+
+    public static Region decode(byte[] data, MainRegionResolver resolver) {
+        return decode(ByteBuffer.wrap(data), resolver);
+    }
+
+    /**
+     * Lê uma região a partir da posição atual do buffer.
+     *
+     * @param in       O buffer de origem.
+     * @param resolver Fornece as regiões principais referenciadas por chave; pode ser null se nenhuma for esperada.
+     * @return A Region, SubRegion ou RestrictedRegion decodificada.
+     * @throws IllegalArgumentException Se os dados forem inválidos ou a região principal não for encontrada.
+     */
+    public static Region decode(ByteBuffer in, MainRegionResolver resolver) {
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versão de codificação não suportada: " + version);
+            }
+            int header = in.get() & 0xff;
+            Region region = readBase(in);
+            int kind = header & KIND_MASK;
+            if (kind == KIND_REGION) {
+                return region;
+            }
+
+            Region mainRegion;
+            if ((header & MAIN_BY_KEY) != 0) {
+                String key = readString(in);
+                mainRegion = resolver == null ? null : resolver.resolve(key);
+                if (mainRegion == null) {
+                    throw new IllegalArgumentException("Região principal desconhecida: " + key);
+                }
+            } else if ((header & MAIN_EMBEDDED) != 0) {
+                mainRegion = readBase(in);
+            } else {
+                mainRegion = null;
+            }
+
+            if (kind == KIND_SUB_REGION) {
+                return new SubRegion(region.getName(), region.getLatitude(), region.getLongitude(), region.getuser(), region.getTimestamp(), mainRegion);
+            } else if (kind == KIND_RESTRICTED_REGION) {
+                return new RestrictedRegion(region.getName(), region.getLatitude(), region.getLongitude(), region.getuser(), region.getTimestamp(), (header & RESTRICTED_FLAG) != 0, mainRegion);
+            }
+            throw new IllegalArgumentException("Tipo de região inválido: " + kind);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Região codificada incompleta", e);
+        }
+    }
+
+    // Validado antes de escrever, para não deixar um registro parcial no buffer
+    private static void checkTimestamp(Region region) {
+        Long timestamp = region.getTimestamp();
+        if (timestamp != null && timestamp == Long.MIN_VALUE) {
+            // zigZag(Long.MIN_VALUE) + 1 seria 0, que representa o timestamp nulo
+            throw new IllegalArgumentException("Timestamp não suportado: " + timestamp);
+        }
+    }
+
+    private static int baseSize(Region region) {
+        Long timestamp = region.getTimestamp();
+        return 16
+                + varLongSize(timestamp == null ? 0 : zigZag(timestamp) + 1)
+                + varLongSize(zigZag(region.getuser()))
+                + stringSize(region.getName());
+    }
+
+    private static void writeBase(Region region, ByteBuffer out) {
+        Long timestamp = region.getTimestamp();
+        out.putDouble(region.getLatitude());
+        out.putDouble(region.getLongitude());
+        writeVarLong(timestamp == null ? 0 : zigZag(timestamp) + 1, out);
+        writeVarLong(zigZag(region.getuser()), out);
+        writeString(region.getName(), out);
+    }
+
+    private static Region readBase(ByteBuffer in) {
+        double latitude = in.getDouble();
+        double longitude = in.getDouble();
+        long timestamp = readVarLong(in);
+        int user = (int) unZigZag(readVarLong(in));
+        String name = readString(in);
+        return new Region(name, latitude, longitude, timestamp == 0 ? null : unZigZag(timestamp - 1), user);
+    }
+
+    // Textos: varint de (tamanho em bytes + 1), com 0 representando null, seguido dos bytes em UTF-8
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = utf8Length(value);
+        return varLongSize(length + 1) + length;
+    }
+
+    private static void writeString(String value, ByteBuffer out) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1, out);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readVarLong(in) - 1;
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), (int) length, StandardCharsets.UTF_8);
+            in.position(in.position() + (int) length);
+        } else {
+            byte[] bytes = new byte[(int) length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    // Tamanho em UTF-8 calculado sem alocar o array de bytes
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1; // Surrogate isolado é substituído por '?' em getBytes
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarLong(long value, ByteBuffer out) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint inválido");
+    }
+}
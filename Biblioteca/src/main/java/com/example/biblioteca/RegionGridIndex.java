@@ -0,0 +1,226 @@
+/**
+ * Índice espacial de regiões baseado em uma grade uniforme de latitude/longitude.
+ *
+ * Cada região é armazenada na célula da grade que contém suas coordenadas. As células têm, por padrão,
+ * aproximadamente 30 metros de lado, de forma que as consultas de proximidade (30 metros para Region e
+ * 5 metros para SubRegion/RestrictedRegion) precisam examinar apenas a célula da coordenada consultada e
+ * as células vizinhas, em vez de percorrer a lista inteira de regiões.
+ *
+ * Principais funcionalidades:
+ * - Inserção e remoção incremental de regiões.
+ * - Busca da Region (região principal) mais próxima dentro de um raio.
+ * - Busca das SubRegion/RestrictedRegion de uma região principal dentro de um raio.
+ *
+ * As células são separadas por RegionKind, de forma que cada consulta examina apenas o tipo de região que lhe interessa.
+ *
+ * A classe não é sincronizada: quem compartilha o índice entre threads deve protegê-lo com o mesmo
+ * mecanismo usado para proteger a lista de regiões.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RegionGridIndex {
+    public static final double DEFAULT_CELL_SIZE_METERS = 30;
+    // Mesmo raio da Terra usado por Region.withinMeters, para que a vizinhança examinada cubra todo o raio
+    private static final double METERS_PER_DEGREE = Region.METERS_PER_DEGREE;
+    private static final double MIN_COS_LATITUDE = 1e-9; // Abaixo disso a consulta está praticamente no polo
+
+    private final double cellDegrees;
+    private final int columns;
+    private final double columnDegrees;
+    private final Map<RegionKind, Map<Long, List<Region>>> cellsByKind = new EnumMap<>(RegionKind.class);
+    private int size;
+
+    public RegionGridIndex() {
+        this(DEFAULT_CELL_SIZE_METERS);
+    }
+
+    public RegionGridIndex(double cellSizeMeters) {
+        if (cellSizeMeters <= 0) {
+            throw new IllegalArgumentException("Tamanho da célula deve ser positivo: " + cellSizeMeters);
+        }
+        this.cellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+        // Número inteiro de colunas para que a grade feche em ±180 graus de longitude
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+        this.columnDegrees = 360.0 / columns;
+        for (RegionKind kind : RegionKind.values()) {
+            cellsByKind.put(kind, new HashMap<Long, List<Region>>());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (Map<Long, List<Region>> cells : cellsByKind.values()) {
+            cells.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Insere uma região na célula correspondente às suas coordenadas.
+     *
+     * @param region A região a ser inserida.
+     */
+    public void insert(Region region) {
+        Map<Long, List<Region>> cells = cellsByKind.get(region.kind());
+        long key = cellKey(row(region.getLatitude()), column(region.getLongitude()));
+        List<Region> bucket = cells.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(2);
+            cells.put(key, bucket);
+        }
+        bucket.add(region);
+        size++;
+    }
+
+    public void insertAll(Collection<? extends Region> regions) {
+        for (Region region : regions) {
+            insert(region);
+        }
+    }
+
+    /**
+     * Remove uma região do índice.
+     * A região deve ter as mesmas coordenadas que tinha no momento da inserção.
+     *
+     * @param region A região a ser removida.
+     * @return True se a região estava no índice, False caso contrário.
+     */
+    public boolean remove(Region region) {
+        Map<Long, List<Region>> cells = cellsByKind.get(region.kind());
+        long key = cellKey(row(region.getLatitude()), column(region.getLongitude()));
+        List<Region> bucket = cells.get(key);
+        if (bucket == null || !bucket.remove(region)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            cells.remove(key);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Busca a Region (região principal) mais próxima das coordenadas informadas, dentro do raio informado.
+     * SubRegion e RestrictedRegion são ignoradas.
+     *
+     * @param latitude     A latitude consultada.
+     * @param longitude    A longitude consultada.
+     * @param radiusMeters O raio máximo de busca, em metros.
+     * @return A Region mais próxima a menos de radiusMeters metros, ou null se não houver nenhuma.
+     */
+    public Region nearestRegion(double latitude, double longitude, double radiusMeters) {
+        Region nearest = null;
+        double nearestDistance = radiusMeters;
+        for (List<Region> bucket : neighbourCells(RegionKind.REGION, latitude, longitude, radiusMeters)) {
+            for (Region candidate : bucket) {
+                if (!candidate.withinMeters(latitude, longitude, nearestDistance)) {
+                    continue;
+                }
+                double distance = candidate.distanceMeters(latitude, longitude);
+                if (distance < nearestDistance) {
+                    nearest = candidate;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Busca as SubRegion e RestrictedRegion associadas à região principal informada que estão a menos de
+     * radiusMeters metros das coordenadas informadas.
+     *
+     * @param mainRegion   A região principal cujas sub-regiões serão consideradas.
+     * @param latitude     A latitude consultada.
+     * @param longitude    A longitude consultada.
+     * @param radiusMeters O raio máximo de busca, em metros.
+     * @return A lista (possivelmente vazia) das sub-regiões encontradas.
+     */
+    public List<Region> childrenWithin(Region mainRegion, double latitude, double longitude, double radiusMeters) {
+        List<Region> children = new ArrayList<>();
+        collectChildren(RegionKind.SUB_REGION, mainRegion, latitude, longitude, radiusMeters, children);
+        collectChildren(RegionKind.RESTRICTED_REGION, mainRegion, latitude, longitude, radiusMeters, children);
+        return children;
+    }
+
+    private void collectChildren(RegionKind kind, Region mainRegion, double latitude, double longitude, double radiusMeters, List<Region> children) {
+        for (List<Region> bucket : neighbourCells(kind, latitude, longitude, radiusMeters)) {
+            for (Region candidate : bucket) {
+                if (mainRegion.equals(Region.mainRegionOf(candidate))
+                        && candidate.withinMeters(latitude, longitude, radiusMeters)) {
+                    children.add(candidate);
+                }
+            }
+        }
+    }
+
+    // Retorna os buckets não vazios das células que podem conter pontos a menos de radiusMeters metros
+    private List<List<Region>> neighbourCells(RegionKind kind, double latitude, double longitude, double radiusMeters) {
+        List<List<Region>> result = new ArrayList<>();
+        Map<Long, List<Region>> cells = cellsByKind.get(kind);
+        if (cells.isEmpty()) {
+            return result;
+        }
+        double latitudeDelta = radiusMeters / METERS_PER_DEGREE;
+        double farthestLatitude = Math.min(90, Math.abs(latitude) + latitudeDelta);
+        double cosLatitude = Math.cos(Math.toRadians(farthestLatitude));
+        double longitudeDelta = cosLatitude > MIN_COS_LATITUDE ? latitudeDelta / cosLatitude : 360;
+
+        int firstRow = row(latitude - latitudeDelta);
+        int lastRow = row(latitude + latitudeDelta);
+        int firstColumn = 0;
+        int lastColumn = columns - 1;
+        // Próximo aos polos o raio pode cobrir todas as longitudes; nesse caso todas as colunas são examinadas.
+        // Os limites são calculados em double para que não estourem o int antes da comparação.
+        if (longitudeDelta < 180) {
+            double normalized = longitude - 360 * Math.floor((longitude + 180) / 360);
+            double first = Math.floor((normalized + 180 - longitudeDelta) / columnDegrees);
+            double last = Math.floor((normalized + 180 + longitudeDelta) / columnDegrees);
+            if (last - first + 1 < columns) {
+                firstColumn = (int) first;
+                lastColumn = (int) last;
+            }
+        }
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                List<Region> bucket = cells.get(cellKey(r, Math.floorMod(c, columns)));
+                if (bucket != null) {
+                    result.add(bucket);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / columnDegrees), columns);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
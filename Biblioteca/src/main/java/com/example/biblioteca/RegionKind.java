@@ -0,0 +1,10 @@
+package com.example.biblioteca;
+
+/**
+ * Tipo de uma região, usado para classificar regiões sem reflexão nem comparação de nomes de classe.
+ */
+public enum RegionKind {
+    REGION,
+    SUB_REGION,
+    RESTRICTED_REGION
+}
@@ -0,0 +1,142 @@
+/**
+ * Regras de posicionamento de uma nova localização na hierarquia de regiões, independentes da plataforma.
+ *
+ * Dadas as regiões do servidor, as regiões locais ainda não salvas e uma coordenada, decide se a localização deve
+ * virar uma nova Region, uma SubRegion ou uma RestrictedRegion de uma região principal existente, ou se deve ser
+ * rejeitada. A decisão não altera as árvores nem cria regiões: cabe a quem chama aplicá-la.
+ *
+ * Regras:
+ * - A região principal é a mais próxima a menos de mainRadiusMeters (30 metros), procurada primeiro entre as regiões
+ *   do servidor e, se não houver, entre as regiões locais. Sem região principal, a localização vira uma nova Region.
+ * - Com região principal, a localização é rejeitada se alguma sub-região dela, no servidor ou local, estiver a menos
+ *   de childRadiusMeters (5 metros).
+ * - Caso contrário, o tipo alterna conforme a última sub-região da região principal (a local tem precedência sobre a
+ *   do servidor): depois de uma SubRegion vem uma RestrictedRegion; nos demais casos, uma SubRegion.
+ *
+ * A classe não tem estado mutável e pode ser usada por várias threads, desde que as árvores não sejam alteradas
+ * durante a decisão.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca;
+
+public final class RegionPlacementEngine {
+    public static final double DEFAULT_MAIN_RADIUS_METERS = 30;
+    public static final double DEFAULT_CHILD_RADIUS_METERS = 5;
+
+    /**
+     * Resultado da decisão de posicionamento.
+     */
+    public static final class Decision {
+
+        public enum Type {
+            NEW_REGION,
+            SUB_REGION,
+            RESTRICTED_REGION,
+            REJECTED
+        }
+
+        private static final Decision NEW_REGION = new Decision(Type.NEW_REGION, null);
+
+        private final Type type;
+        private final Region mainRegion;
+
+        private Decision(Type type, Region mainRegion) {
+            this.type = type;
+            this.mainRegion = mainRegion;
+        }
+
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Retorna a região principal à qual a nova sub-região pertence (ou cuja sub-região causou a rejeição),
+         * ou null para uma nova Region.
+         */
+        public Region mainRegion() {
+            return mainRegion;
+        }
+
+        public boolean isRejected() {
+            return type == Type.REJECTED;
+        }
+
+        @Override
+        public String toString() {
+            return mainRegion == null ? type.toString() : type + " (" + mainRegion.getName() + ")";
+        }
+    }
+
+    private final double mainRadiusMeters;
+    private final double childRadiusMeters;
+
+    public RegionPlacementEngine() {
+        this(DEFAULT_MAIN_RADIUS_METERS, DEFAULT_CHILD_RADIUS_METERS);
+    }
+
+    /**
+     * @param mainRadiusMeters  O raio de busca da região principal, em metros.
+     * @param childRadiusMeters A distância mínima até as sub-regiões existentes, em metros.
+     */
+    public RegionPlacementEngine(double mainRadiusMeters, double childRadiusMeters) {
+        if (mainRadiusMeters <= 0 || childRadiusMeters <= 0) {
+            throw new IllegalArgumentException("Os raios devem ser positivos");
+        }
+        this.mainRadiusMeters = mainRadiusMeters;
+        this.childRadiusMeters = childRadiusMeters;
+    }
+
+    public double getMainRadiusMeters() {
+        return mainRadiusMeters;
+    }
+
+    public double getChildRadiusMeters() {
+        return childRadiusMeters;
+    }
+
+    /**
+     * Decide o posicionamento considerando apenas uma árvore de regiões.
+     */
+    public Decision decide(RegionTree regions, double latitude, double longitude) {
+        return decide(regions, null, latitude, longitude);
+    }
+
+    /**
+     * Decide o posicionamento de uma nova localização.
+     *
+     * @param server    As regiões do servidor (ou a parte delas próxima da localização).
+     * @param local     As regiões locais ainda não salvas; pode ser null.
+     * @param latitude  A latitude da nova localização.
+     * @param longitude A longitude da nova localização.
+     * @return A decisão de posicionamento.
+     */
+    public Decision decide(RegionTree server, RegionTree local, double latitude, double longitude) {
+        Region mainRegion = server.findMainRegionWithin(latitude, longitude, mainRadiusMeters);
+        RegionTree origem = server;
+        if (mainRegion == null && local != null) {
+            mainRegion = local.findMainRegionWithin(latitude, longitude, mainRadiusMeters);
+            origem = local;
+        }
+        if (mainRegion == null) {
+            return Decision.NEW_REGION;
+        }
+
+        if (server.hasChildWithin(mainRegion, latitude, longitude, childRadiusMeters)
+                || (local != null && local.hasChildWithin(mainRegion, latitude, longitude, childRadiusMeters))) {
+            return new Decision(Decision.Type.REJECTED, mainRegion);
+        }
+
+        Region ultimoFilho = local != null ? local.lastChild(mainRegion) : null;
+        if (ultimoFilho == null) {
+            ultimoFilho = origem.lastChild(mainRegion);
+        }
+        if (ultimoFilho != null && ultimoFilho.kind() == RegionKind.SUB_REGION) {
+            return new Decision(Decision.Type.RESTRICTED_REGION, mainRegion);
+        }
+        return new Decision(Decision.Type.SUB_REGION, mainRegion);
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Estrutura hierárquica de regiões: cada Region (região principal) é dona direta de suas SubRegion e RestrictedRegion.
+ *
+ * Substitui o layout posicional em lista, no qual a relação entre uma região principal e suas sub-regiões existia
+ * apenas pela adjacência dos elementos. As regiões principais são mantidas na ordem de inserção e indexadas por um
+ * RegionGridIndex, de forma que a busca da região principal a menos de 30 metros não percorre a estrutura inteira.
+ *
+ * Principais funcionalidades:
+ * - Inserção de regiões principais e de sub-regiões em O(1), sem deslocamento de elementos.
+ * - Busca da região principal mais próxima dentro de um raio.
+ * - Verificação em O(filhos) se alguma sub-região de uma região principal está dentro de um raio.
+ * - Iteração "achatada" (região principal seguida de suas sub-regiões), na mesma ordem da antiga lista.
+ * - Mesclagem (merge) de outra árvore inserindo apenas as regiões que ainda não estão nesta, em O(k) para k regiões.
+ *
+ * A classe não é sincronizada.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class RegionTree implements Iterable<Region> {
+    private final Map<Region, List<Region>> nodes = new LinkedHashMap<>();
+    private final RegionGridIndex mainIndex = new RegionGridIndex();
+    private final Set<Region> childSet = new HashSet<>(); // Todas as sub-regiões, para a deduplicação do merge
+    private int size;
+
+    /**
+     * Reconstrói a árvore a partir do layout posicional antigo (região principal seguida de suas sub-regiões).
+     * Sub-regiões são associadas à região principal indicada por getMainRegion(); se ela for nula,
+     * são associadas à última região principal encontrada na lista.
+     *
+     * @param regions A lista de regiões no layout antigo.
+     * @return A árvore correspondente.
+     */
+    public static RegionTree fromList(List<? extends Region> regions) {
+        RegionTree tree = new RegionTree();
+        Region current = null;
+        for (Region region : regions) {
+            Region mainRegion = Region.mainRegionOf(region);
+            if (region.kind() == RegionKind.REGION) {
+                tree.addRegion(region);
+                current = region;
+            } else if (mainRegion != null || current != null) {
+                tree.addChild(mainRegion != null ? mainRegion : current, region);
+            }
+        }
+        return tree;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        nodes.clear();
+        mainIndex.clear();
+        childSet.clear();
+        size = 0;
+    }
+
+    public boolean contains(Region mainRegion) {
+        return nodes.containsKey(mainRegion);
+    }
+
+    public Set<Region> mainRegions() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Adiciona uma região principal sem sub-regiões.
+     *
+     * @param region A região principal.
+     * @return True se a região foi adicionada, False se ela já estava na árvore.
+     */
+    public boolean addRegion(Region region) {
+        if (nodes.containsKey(region)) {
+            return false;
+        }
+        nodes.put(region, new ArrayList<Region>(2));
+        mainIndex.insert(region);
+        size++;
+        return true;
+    }
+
+    /**
+     * Adiciona uma sub-região (SubRegion ou RestrictedRegion) ao final da lista de filhos da região principal.
+     * Se a região principal ainda não estiver na árvore, ela é adicionada antes.
+     *
+     * @param mainRegion A região principal.
+     * @param child      A sub-região a ser adicionada.
+     */
+    public void addChild(Region mainRegion, Region child) {
+        addRegion(mainRegion);
+        nodes.get(mainRegion).add(child);
+        childSet.add(child);
+        size++;
+    }
+
+    /**
+     * Adiciona todas as regiões de outra árvore, preservando a associação entre regiões principais e sub-regiões.
+     * As sub-regiões não são deduplicadas; para combinar árvores que podem ter regiões em comum, use merge.
+     *
+     * @param other A árvore cujas regiões serão adicionadas.
+     */
+    public void addAll(RegionTree other) {
+        for (Map.Entry<Region, List<Region>> node : other.nodes.entrySet()) {
+            addRegion(node.getKey());
+            for (Region child : node.getValue()) {
+                addChild(node.getKey(), child);
+            }
+        }
+    }
+
+    /**
+     * Mescla outra árvore nesta, inserindo apenas as regiões que ainda não estão aqui. As regiões são identificadas
+     * por equals (nome, coordenadas, timestamp e usuário), de forma que a mesma região decodificada duas vezes do
+     * servidor não é duplicada. Cada região de other custa uma consulta em tabela hash, sem copiar esta árvore.
+     *
+     * @param other A árvore cujas regiões serão mescladas.
+     * @return O número de regiões inseridas.
+     */
+    public int merge(RegionTree other) {
+        int inseridas = 0;
+        for (Map.Entry<Region, List<Region>> node : other.nodes.entrySet()) {
+            if (addRegion(node.getKey())) {
+                inseridas++;
+            }
+            for (Region child : node.getValue()) {
+                if (!childSet.contains(child)) {
+                    addChild(node.getKey(), child);
+                    inseridas++;
+                }
+            }
+        }
+        return inseridas;
+    }
+
+    /**
+     * Remove uma região principal e todas as suas sub-regiões.
+     *
+     * @param mainRegion A região principal.
+     * @return True se a região estava na árvore, False caso contrário.
+     */
+    public boolean removeRegion(Region mainRegion) {
+        List<Region> children = nodes.remove(mainRegion);
+        if (children == null) {
+            return false;
+        }
+        mainIndex.remove(mainRegion);
+        for (Region child : children) {
+            childSet.remove(child);
+        }
+        size -= children.size() + 1;
+        return true;
+    }
+
+    /**
+     * Substitui uma região principal por outra (por exemplo, a versão alterada de um registro do servidor),
+     * mantendo as suas sub-regiões, que passam a referenciar a nova região principal.
+     * Se já houver na árvore uma região principal igual à nova, as sub-regiões são acrescentadas à lista dela.
+     *
+     * @param oldMain A região principal a ser substituída.
+     * @param newMain A nova região principal.
+     * @return True se a região antiga estava na árvore; caso contrário, a nova região é apenas adicionada.
+     */
+    public boolean replaceRegion(Region oldMain, Region newMain) {
+        List<Region> children = nodes.remove(oldMain);
+        if (children == null) {
+            addRegion(newMain);
+            return false;
+        }
+        mainIndex.remove(oldMain);
+        List<Region> existentes = nodes.get(newMain);
+        if (existentes == null) {
+            nodes.put(newMain, children);
+            mainIndex.insert(newMain);
+        } else {
+            existentes.addAll(children);
+            size--; // A região antiga deixou de existir, e a nova já estava contada
+        }
+        for (Region child : children) {
+            setMainRegion(child, newMain);
+        }
+        return true;
+    }
+
+    public boolean removeChild(Region mainRegion, Region child) {
+        List<Region> children = nodes.get(mainRegion);
+        if (children == null || !children.remove(child)) {
+            return false;
+        }
+        childSet.remove(child);
+        size--;
+        return true;
+    }
+
+    public List<Region> getChildren(Region mainRegion) {
+        List<Region> children = nodes.get(mainRegion);
+        return children == null ? Collections.<Region>emptyList() : Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Retorna a última sub-região adicionada à região principal, ou null se ela não tiver sub-regiões.
+     */
+    public Region lastChild(Region mainRegion) {
+        List<Region> children = nodes.get(mainRegion);
+        return children == null || children.isEmpty() ? null : children.get(children.size() - 1);
+    }
+
+    /**
+     * Busca a região principal mais próxima das coordenadas informadas, dentro do raio informado.
+     *
+     * @return A região principal encontrada, ou null se nenhuma estiver a menos de radiusMeters metros.
+     */
+    public Region findMainRegionWithin(double latitude, double longitude, double radiusMeters) {
+        return mainIndex.nearestRegion(latitude, longitude, radiusMeters);
+    }
+
+    /**
+     * Retorna uma nova árvore com apenas a região principal mais próxima das coordenadas, dentro do raio, e as suas
+     * sub-regiões. O custo depende do número de sub-regiões, e não do tamanho desta árvore.
+     *
+     * @return A árvore com a região encontrada, ou uma árvore vazia se nenhuma estiver dentro do raio.
+     */
+    public RegionTree copyNearby(double latitude, double longitude, double radiusMeters) {
+        RegionTree copy = new RegionTree();
+        Region mainRegion = findMainRegionWithin(latitude, longitude, radiusMeters);
+        if (mainRegion != null) {
+            copy.addRegion(mainRegion);
+            for (Region child : nodes.get(mainRegion)) {
+                copy.addChild(mainRegion, child);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Verifica se alguma sub-região da região principal está a menos de radiusMeters metros das coordenadas.
+     */
+    public boolean hasChildWithin(Region mainRegion, double latitude, double longitude, double radiusMeters) {
+        List<Region> children = nodes.get(mainRegion);
+        if (children == null) {
+            return false;
+        }
+        for (Region child : children) {
+            if (child.withinMeters(latitude, longitude, radiusMeters)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Region> toList() {
+        List<Region> list = new ArrayList<>(size);
+        for (Region region : this) {
+            list.add(region);
+        }
+        return list;
+    }
+
+    /**
+     * Itera sobre as regiões na ordem da antiga lista: cada região principal seguida de suas sub-regiões.
+     */
+    @Override
+    public Iterator<Region> iterator() {
+        return new Iterator<Region>() {
+            private final Iterator<Map.Entry<Region, List<Region>>> mainIterator = nodes.entrySet().iterator();
+            private Iterator<Region> childIterator = Collections.<Region>emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                return childIterator.hasNext() || mainIterator.hasNext();
+            }
+
+            @Override
+            public Region next() {
+                if (childIterator.hasNext()) {
+                    return childIterator.next();
+                }
+                if (!mainIterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Region, List<Region>> node = mainIterator.next();
+                childIterator = node.getValue().iterator();
+                return node.getKey();
+            }
+        };
+    }
+
+    private static void setMainRegion(Region child, Region mainRegion) {
+        switch (child.kind()) {
+            case SUB_REGION:
+                ((SubRegion) child).setMainRegion(mainRegion);
+                break;
+            case RESTRICTED_REGION:
+                ((RestrictedRegion) child).setMainRegion(mainRegion);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -2,9 +2,8 @@ package com.example.biblioteca;
 
 public class SubRegion extends Region {
     private Region mainRegion;
-    private static final double R = 6371000; // Raio da Terra em metros
 
-    public SubRegion(String name, double latitude, double longitude, int user, long timestamp, Region mainRegion) {
+    public SubRegion(String name, double latitude, double longitude, int user, Long timestamp, Region mainRegion) {
         super(name, latitude, longitude, timestamp, user);
         this.mainRegion = mainRegion;
     }
@@ -18,21 +17,17 @@ public class SubRegion extends Region {
 
 
     @Override
-    public Boolean calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c;
+    public RegionKind kind() {
+        return RegionKind.SUB_REGION;
+    }
 
-        if (distance > 5) {
-            return true;
-        }
-        else{
-            return false;
-        }
+    /**
+     * @deprecated Use {@link #distanceMeters(double, double, double, double)} ou {@link #withinMeters(double, double, double)}.
+     * Retorna true se a distância entre as coordenadas for maior que 5 metros.
+     */
+    @Deprecated
+    @Override
+    public Boolean calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+        return distanceMeters(lat1, lon1, lat2, lon2) > 5;
     }
 }
-
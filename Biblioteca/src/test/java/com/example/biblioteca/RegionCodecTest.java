@@ -0,0 +1,192 @@
+package com.example.biblioteca;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes da codificação binária do RegionCodec: ida e volta dos três tipos de região e leitura de dados inválidos.
+ */
+public class RegionCodecTest {
+    private static final Long[] TIMESTAMPS = {null, 0L, 1L, -1L, -1234567890123L, 1729209600000L, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+    private static final String[] NAMES = {null, "", "Praça da Liberdade", "São João del-Rei – ção", "東京タワー", "Região 🚀🌎", "a\u0000b"};
+
+    private static Region mainRegion() {
+        Region mainRegion = new Region("Principal ç", -19.9167, -43.9345, 1729209600000L, 7);
+        mainRegion.setStorageKey("-NmainRegionKey00000");
+        return mainRegion;
+    }
+
+    private static RegionCodec.MainRegionResolver resolverFor(final Region mainRegion) {
+        return new RegionCodec.MainRegionResolver() {
+            @Override
+            public Region resolve(String storageKey) {
+                return storageKey.equals(mainRegion.storageKey()) ? mainRegion : null;
+            }
+        };
+    }
+
+    private static Region roundTrip(Region region, RegionCodec.MainRegionResolver resolver) {
+        byte[] encoded = RegionCodec.encode(region);
+        assertEquals(RegionCodec.encodedSize(region), encoded.length);
+        return RegionCodec.decode(encoded, resolver);
+    }
+
+    private static void assertSameFields(Region expected, Region actual) {
+        assertEquals(expected.kind(), actual.kind());
+        assertEquals(expected, actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getuser(), actual.getuser());
+    }
+
+    @Test
+    public void roundTrip_allKindsTimestampsAndNames() {
+        Region mainRegion = mainRegion();
+        RegionCodec.MainRegionResolver resolver = resolverFor(mainRegion);
+        int user = -5;
+        for (Long timestamp : TIMESTAMPS) {
+            for (String name : NAMES) {
+                user = user * -3 + 1;
+                Region region = new Region(name, 89.9999, -179.5, timestamp, user);
+                assertSameFields(region, roundTrip(region, null));
+
+                SubRegion sub = new SubRegion(name, -19.91671, -43.93451, user, timestamp, mainRegion);
+                Region subDecoded = roundTrip(sub, resolver);
+                assertSameFields(sub, subDecoded);
+                assertSame(mainRegion, Region.mainRegionOf(subDecoded));
+
+                for (boolean restricted : new boolean[]{true, false}) {
+                    RestrictedRegion restrita = new RestrictedRegion(name, -19.91672, -43.93452, user, timestamp, restricted, mainRegion);
+                    RestrictedRegion decoded = (RestrictedRegion) roundTrip(restrita, resolver);
+                    assertSameFields(restrita, decoded);
+                    assertEquals(restricted, decoded.getRestricted());
+                    assertSame(mainRegion, decoded.getMainRegion());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip_embedsMainRegionWithoutKey() {
+        Region mainRegion = new Region("Sem chave – ã", 10.5, 20.25, null, -1);
+        SubRegion sub = new SubRegion("Filha", 10.50001, 20.25001, 3, Long.MAX_VALUE, mainRegion);
+
+        Region decoded = roundTrip(sub, null);
+
+        assertSameFields(sub, decoded);
+        Region decodedMain = Region.mainRegionOf(decoded);
+        assertNotSame(mainRegion, decodedMain);
+        assertSameFields(mainRegion, decodedMain);
+    }
+
+    @Test
+    public void encode_intoBufferAtPosition() {
+        Region region = new Region("Buffer", 1, 2, 3L, 4);
+        ByteBuffer buffer = ByteBuffer.allocate(RegionCodec.encodedSize(region) + 3);
+        buffer.put(new byte[3]);
+        RegionCodec.encode(region, buffer);
+        assertFalse(buffer.hasRemaining());
+
+        buffer.position(3);
+        assertSameFields(region, RegionCodec.decode(buffer, null));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void encodedSize_matchesForUnpairedSurrogate() {
+        Region region = new Region("x\uD800y", 0, 0, 1L, 1);
+        assertEquals(RegionCodec.encodedSize(region), RegionCodec.encode(region).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsMinValueTimestamp() {
+        RegionCodec.encode(new Region("min", 0, 0, Long.MIN_VALUE, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsMinValueTimestampOfEmbeddedMainRegion() {
+        Region mainRegion = new Region("min", 0, 0, Long.MIN_VALUE, 1);
+        RegionCodec.encode(new SubRegion("filha", 0, 0, 1, 1L, mainRegion));
+    }
+
+    @Test
+    public void decode_rejectsEveryTruncation() {
+        Region mainRegion = mainRegion();
+        Region[] regions = {
+                new Region("Região ç", 1, 2, 3L, 4),
+                new SubRegion("Sub", 1, 2, 3, 4L, mainRegion),
+                new RestrictedRegion("Restrita", 1, 2, 3, 4L, true, new Region("Embutida", 5, 6, 7L, 8))
+        };
+        for (Region region : regions) {
+            byte[] encoded = RegionCodec.encode(region);
+            for (int length = 0; length < encoded.length; length++) {
+                try {
+                    RegionCodec.decode(Arrays.copyOf(encoded, length), resolverFor(mainRegion));
+                    fail("Decodificou " + length + " de " + encoded.length + " bytes de " + region.getName());
+                } catch (IllegalArgumentException e) {
+                    // Esperado
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownVersion() {
+        byte[] encoded = RegionCodec.encode(new Region("v", 0, 0, 1L, 1));
+        encoded[0] = (byte) (RegionCodec.VERSION + 1);
+        RegionCodec.decode(encoded, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsInvalidKind() {
+        byte[] encoded = RegionCodec.encode(new Region("k", 0, 0, 1L, 1));
+        encoded[1] = 0x03;
+        RegionCodec.decode(encoded, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownMainRegionKey() {
+        byte[] encoded = RegionCodec.encode(new SubRegion("s", 0, 0, 1, 1L, mainRegion()));
+        RegionCodec.decode(encoded, resolverFor(new Region("outra", 1, 1, 1L, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsMainRegionKeyWithoutResolver() {
+        RegionCodec.decode(RegionCodec.encode(new SubRegion("s", 0, 0, 1, 1L, mainRegion())), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsOverlongVarint() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 16 + 11);
+        buffer.put(RegionCodec.VERSION).put((byte) 0).putDouble(0).putDouble(0);
+        for (int i = 0; i < 11; i++) {
+            buffer.put((byte) 0xFF);
+        }
+        RegionCodec.decode(buffer.array(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsStringLongerThanInput() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 16 + 2 + 2);
+        buffer.put(RegionCodec.VERSION).put((byte) 0).putDouble(0).putDouble(0);
+        buffer.put((byte) 1).put((byte) 2); // timestamp e usuário
+        buffer.put((byte) 0x7F).put((byte) 'a'); // 126 bytes declarados, 1 presente
+        RegionCodec.decode(buffer.array(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsNegativeStringLength() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 16 + 2 + 10);
+        buffer.put(RegionCodec.VERSION).put((byte) 0).putDouble(0).putDouble(0);
+        buffer.put((byte) 1).put((byte) 2);
+        for (int i = 0; i < 9; i++) {
+            buffer.put((byte) 0xFF);
+        }
+        buffer.put((byte) 0x01); // Tamanho com o bit de sinal ligado
+        RegionCodec.decode(buffer.array(), null);
+    }
+}
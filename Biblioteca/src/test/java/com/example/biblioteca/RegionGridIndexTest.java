@@ -0,0 +1,134 @@
+package com.example.biblioteca;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes do RegionGridIndex, inclusive das consultas próximas aos polos e à linha de data.
+ */
+public class RegionGridIndexTest {
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6371000;
+
+    private static Region region(String name, double latitude, double longitude) {
+        return new Region(name, latitude, longitude, 0L, 1);
+    }
+
+    @Test
+    public void nearestRegion_returnsNearestWithinRadius() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region perto = region("perto", -19.9167, -43.9345);
+        Region longe = region("longe", -19.9167 + 20 / METERS_PER_DEGREE, -43.9345);
+        index.insert(longe);
+        index.insert(perto);
+
+        assertSame(perto, index.nearestRegion(-19.9167 + 1 / METERS_PER_DEGREE, -43.9345, 30));
+        assertNull(index.nearestRegion(-19.9167 - 40 / METERS_PER_DEGREE, -43.9345, 30));
+    }
+
+    @Test
+    public void nearestRegion_atRadiusAcrossRowEdges() {
+        // Passos de 1 cm ao longo de uma célula inteira garantem que alguma consulta fique logo acima (ou abaixo) da
+        // borda de uma linha da grade, com a região quase exatamente a 30 metros, do outro lado da borda
+        double raio = 30;
+        double afastamento = raio * (1 - 1e-5) / METERS_PER_DEGREE;
+        for (int i = 0; i < 3000; i++) {
+            double latitude = -19.9167 + i * 0.01 / METERS_PER_DEGREE;
+            for (double sentido : new double[]{-1, 1}) {
+                RegionGridIndex index = new RegionGridIndex();
+                Region region = region("borda", latitude + sentido * afastamento, -43.9345);
+                index.insert(region);
+                assertSame("consulta " + latitude + " sentido " + sentido, region, index.nearestRegion(latitude, -43.9345, raio));
+            }
+        }
+    }
+
+    @Test
+    public void childrenWithin_atRadiusAcrossRowEdges() {
+        double raio = 5;
+        double afastamento = raio * (1 - 1e-5) / METERS_PER_DEGREE;
+        Region mainRegion = region("principal", -19.9167, -43.9345);
+        // Com 5 metros a folga do raio antigo era de poucos milímetros: passos de 1 mm
+        for (int i = 0; i < 30000; i++) {
+            double latitude = -19.9167 + i * 0.001 / METERS_PER_DEGREE;
+            RegionGridIndex index = new RegionGridIndex();
+            index.insert(new SubRegion("filha", latitude - afastamento, -43.9345, 1, 1L, mainRegion));
+            assertEquals("consulta " + latitude, 1, index.childrenWithin(mainRegion, latitude, -43.9345, raio).size());
+        }
+    }
+
+    @Test
+    public void nearestRegion_acrossDateLine() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region region = region("leste", 0, 179.99995);
+        index.insert(region);
+
+        assertSame(region, index.nearestRegion(0, -179.99995, 30));
+    }
+
+    @Test
+    public void nearestRegion_nearNorthPole() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region region = region("norte", 89.9999, 10);
+        index.insert(region);
+
+        // Do outro lado do polo, a cerca de 22 metros
+        assertSame(region, index.nearestRegion(89.9999, -170, 30));
+        assertSame(region, index.nearestRegion(89.9999, 100, 30));
+        assertSame(region, index.nearestRegion(89.9999, 10.5, 30));
+        assertNull(index.nearestRegion(89.999, 10, 30));
+    }
+
+    @Test
+    public void nearestRegion_nearSouthPole() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region region = region("sul", -89.9999, -45);
+        index.insert(region);
+
+        assertSame(region, index.nearestRegion(-89.9999, 135, 30));
+        assertSame(region, index.nearestRegion(-89.9999, 45, 30));
+        assertNull(index.nearestRegion(-89.999, 135, 30));
+    }
+
+    @Test
+    public void nearestRegion_atPoles() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region norte = region("norte", 90, 0);
+        Region sul = region("sul", -90, 0);
+        index.insert(norte);
+        index.insert(sul);
+
+        // Nos polos todas as longitudes são o mesmo ponto
+        assertSame(norte, index.nearestRegion(90, 123, 30));
+        assertSame(norte, index.nearestRegion(89.9999, -60, 30));
+        assertSame(sul, index.nearestRegion(-90, -77, 30));
+        assertSame(sul, index.nearestRegion(-89.9999, 170, 30));
+    }
+
+    @Test
+    public void childrenWithin_nearPole() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region mainRegion = region("principal", 89.9999, 0);
+        SubRegion child = new SubRegion("filha", 89.99999, 90, 1, 1L, mainRegion);
+        index.insert(mainRegion);
+        index.insert(child);
+
+        List<Region> children = index.childrenWithin(mainRegion, 89.99999, -90, 5);
+        assertEquals(1, children.size());
+        assertSame(child, children.get(0));
+    }
+
+    @Test
+    public void remove_dropsRegionFromQueries() {
+        RegionGridIndex index = new RegionGridIndex();
+        Region region = region("removida", 10, 10);
+        index.insert(region);
+
+        assertTrue(index.remove(region));
+        assertFalse(index.remove(region));
+        assertTrue(index.isEmpty());
+        assertNull(index.nearestRegion(10, 10, 30));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.biblioteca;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes das regras do RegionPlacementEngine: escolha da região principal, precedência do servidor, rejeição
+ * a menos de 5 metros de uma sub-região e alternância do tipo das sub-regiões.
+ */
+public class RegionPlacementEngineTest {
+    private static final double LATITUDE = -19.9167;
+    private static final double LONGITUDE = -43.9345;
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6371000;
+
+    private final RegionPlacementEngine engine = new RegionPlacementEngine();
+
+    // Latitude a metros metros ao norte (negativo: ao sul) do ponto de referência
+    private static double norte(double metros) {
+        return LATITUDE + metros / METERS_PER_DEGREE;
+    }
+
+    private static Region principal(String name, double metrosAoNorte) {
+        return new Region(name, norte(metrosAoNorte), LONGITUDE, 1L, 1);
+    }
+
+    private static SubRegion sub(Region mainRegion, double metrosAoNorte) {
+        return new SubRegion("sub", norte(metrosAoNorte), LONGITUDE, 1, 2L, mainRegion);
+    }
+
+    private static RestrictedRegion restrita(Region mainRegion, double metrosAoNorte) {
+        return new RestrictedRegion("restrita", norte(metrosAoNorte), LONGITUDE, 1, 3L, true, mainRegion);
+    }
+
+    private RegionPlacementEngine.Decision decide(RegionTree server, RegionTree local) {
+        return engine.decide(server, local, LATITUDE, LONGITUDE);
+    }
+
+    @Test
+    public void decide_newRegionWithoutMainWithin30Meters() {
+        RegionTree server = new RegionTree();
+        server.addRegion(principal("longe", 31));
+        RegionTree local = new RegionTree();
+        local.addRegion(principal("longe local", -31));
+
+        RegionPlacementEngine.Decision decisao = decide(server, local);
+
+        assertEquals(RegionPlacementEngine.Decision.Type.NEW_REGION, decisao.type());
+        assertNull(decisao.mainRegion());
+        assertFalse(decisao.isRejected());
+    }
+
+    @Test
+    public void decide_choosesNearestMainWithin30Meters() {
+        Region longe = principal("longe", 25);
+        Region perto = principal("perto", -12);
+        RegionTree server = new RegionTree();
+        // A mais distante é inserida primeiro, para que a ordem de inserção não decida
+        server.addRegion(longe);
+        server.addRegion(perto);
+
+        RegionPlacementEngine.Decision decisao = decide(server, null);
+
+        assertEquals(RegionPlacementEngine.Decision.Type.SUB_REGION, decisao.type());
+        assertSame(perto, decisao.mainRegion());
+    }
+
+    @Test
+    public void decide_serverMainTakesPrecedenceOverNearerLocalMain() {
+        Region doServidor = principal("servidor", 25);
+        Region local = principal("local", 2);
+        RegionTree server = new RegionTree();
+        server.addRegion(doServidor);
+        RegionTree localTree = new RegionTree();
+        localTree.addRegion(local);
+
+        assertSame(doServidor, decide(server, localTree).mainRegion());
+    }
+
+    @Test
+    public void decide_usesLocalMainWhenServerHasNone() {
+        Region local = principal("local", 20);
+        RegionTree localTree = new RegionTree();
+        localTree.addRegion(local);
+
+        RegionPlacementEngine.Decision decisao = decide(new RegionTree(), localTree);
+
+        assertEquals(RegionPlacementEngine.Decision.Type.SUB_REGION, decisao.type());
+        assertSame(local, decisao.mainRegion());
+    }
+
+    @Test
+    public void decide_rejectsWithin5MetersOfServerChild() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addChild(mainRegion, sub(mainRegion, 4.9));
+
+        RegionPlacementEngine.Decision decisao = decide(server, new RegionTree());
+
+        assertTrue(decisao.isRejected());
+        assertSame(mainRegion, decisao.mainRegion());
+    }
+
+    @Test
+    public void decide_rejectsWithin5MetersOfLocalChild() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addRegion(mainRegion);
+        RegionTree local = new RegionTree();
+        local.addChild(mainRegion, restrita(mainRegion, -4.9));
+
+        RegionPlacementEngine.Decision decisao = decide(server, local);
+
+        assertTrue(decisao.isRejected());
+        assertSame(mainRegion, decisao.mainRegion());
+    }
+
+    @Test
+    public void decide_rejectsWithin5MetersOfChildOfLocalMain() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree local = new RegionTree();
+        local.addChild(mainRegion, sub(mainRegion, 3));
+
+        assertTrue(decide(new RegionTree(), local).isRejected());
+    }
+
+    @Test
+    public void decide_acceptsChildJustBeyond5Meters() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addChild(mainRegion, sub(mainRegion, 5.1));
+        RegionTree local = new RegionTree();
+        local.addChild(mainRegion, sub(mainRegion, -5.1));
+
+        assertFalse(decide(server, local).isRejected());
+    }
+
+    @Test
+    public void decide_restrictedRegionAfterSubRegion() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addChild(mainRegion, restrita(mainRegion, 10));
+        server.addChild(mainRegion, sub(mainRegion, 15));
+
+        assertEquals(RegionPlacementEngine.Decision.Type.RESTRICTED_REGION, decide(server, null).type());
+    }
+
+    @Test
+    public void decide_subRegionAfterRestrictedRegion() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addChild(mainRegion, sub(mainRegion, 10));
+        server.addChild(mainRegion, restrita(mainRegion, 15));
+
+        assertEquals(RegionPlacementEngine.Decision.Type.SUB_REGION, decide(server, null).type());
+    }
+
+    @Test
+    public void decide_localLastChildTakesPrecedenceOverServer() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree server = new RegionTree();
+        server.addChild(mainRegion, sub(mainRegion, 10));
+        RegionTree local = new RegionTree();
+        local.addChild(mainRegion, restrita(mainRegion, 15));
+
+        assertEquals(RegionPlacementEngine.Decision.Type.SUB_REGION, decide(server, local).type());
+
+        // Sem sub-regiões locais, vale a última do servidor
+        assertEquals(RegionPlacementEngine.Decision.Type.RESTRICTED_REGION, decide(server, new RegionTree()).type());
+    }
+
+    @Test
+    public void decide_singleTreeOverload() {
+        Region mainRegion = principal("principal", 20);
+        RegionTree regions = new RegionTree();
+        regions.addChild(mainRegion, sub(mainRegion, 10));
+
+        RegionPlacementEngine.Decision decisao = engine.decide(regions, LATITUDE, LONGITUDE);
+
+        assertEquals(RegionPlacementEngine.Decision.Type.RESTRICTED_REGION, decisao.type());
+        assertSame(mainRegion, decisao.mainRegion());
+    }
+
+    @Test
+    public void decide_customRadii() {
+        RegionPlacementEngine curto = new RegionPlacementEngine(10, 1);
+        RegionTree server = new RegionTree();
+        server.addRegion(principal("principal", 20));
+
+        assertEquals(RegionPlacementEngine.Decision.Type.NEW_REGION, curto.decide(server, LATITUDE, LONGITUDE).type());
+        assertEquals(10, curto.getMainRadiusMeters(), 0);
+        assertEquals(1, curto.getChildRadiusMeters(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPositiveRadius() {
+        new RegionPlacementEngine(30, 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.biblioteca;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes do cálculo de distância da Region, comparando a verificação rápida de raio com o haversine.
+ */
+public class RegionTest {
+    private static final double R = 6371000;
+    private static final double[] LATITUDES = {0, 45, -60, 75, 79.99, 80.01, -85, 89, 89.9999, -89.9999, 90, -90};
+    private static final double[] RADII = {30, 5};
+
+    // Ponto a distanceMeters metros da origem, na direção bearing (graus)
+    private static double[] destination(double latitude, double longitude, double distanceMeters, double bearing) {
+        double lat1 = Math.toRadians(latitude);
+        double lon1 = Math.toRadians(longitude);
+        double angular = distanceMeters / R;
+        double theta = Math.toRadians(bearing);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(angular) + Math.cos(lat1) * Math.sin(angular) * Math.cos(theta));
+        double lon2 = lon1 + Math.atan2(Math.sin(theta) * Math.sin(angular) * Math.cos(lat1),
+                Math.cos(angular) - Math.sin(lat1) * Math.sin(lat2));
+        return new double[]{Math.toDegrees(lat2), (Math.toDegrees(lon2) + 540) % 360 - 180};
+    }
+
+    @Test
+    public void withinMeters_agreesWithDistanceNearThresholds() {
+        Random random = new Random(42);
+        for (double latitude : LATITUDES) {
+            for (double radius : RADII) {
+                Region region = new Region("origem", latitude, 10, 0L, 1);
+                for (int i = 0; i < 2000; i++) {
+                    // Pontos entre 95% e 105% do raio, em qualquer direção
+                    double distance = radius * (0.95 + 0.1 * random.nextDouble());
+                    double[] point = destination(latitude, 10, distance, random.nextDouble() * 360);
+                    boolean esperado = region.distanceMeters(point[0], point[1]) < radius;
+                    assertEquals("lat " + latitude + " raio " + radius + " ponto " + point[0] + "," + point[1],
+                            esperado, region.withinMeters(point[0], point[1], radius));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void withinMeters_acrossPole() {
+        Region region = new Region("norte", 89.9999, 10, 0L, 1);
+        // Do outro lado do polo, a cerca de 22 metros
+        assertTrue(region.withinMeters(89.9999, -170, 30));
+        assertFalse(region.withinMeters(89.9999, -170, 20));
+    }
+
+    @Test
+    public void withinMeters_acrossDateLine() {
+        Region region = new Region("leste", 0, 179.9999, 0L, 1);
+        assertTrue(region.withinMeters(0, -179.9999, 30));
+        assertFalse(region.withinMeters(0, -179.9999, 5));
+    }
+
+    @Test
+    public void distanceMeters_isSymmetric() {
+        Region a = new Region("a", -19.9167, -43.9345, 0L, 1);
+        Region b = new Region("b", -19.9170, -43.9349, 0L, 1);
+        assertEquals(a.distanceMeters(b), b.distanceMeters(a), 1e-9);
+        assertEquals(a.distanceMeters(b), Region.distanceMeters(-19.9167, -43.9345, -19.9170, -43.9349), 1e-9);
+    }
+}
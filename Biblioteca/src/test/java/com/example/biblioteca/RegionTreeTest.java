@@ -0,0 +1,86 @@
+package com.example.biblioteca;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes da RegionTree: substituição de regiões principais e mescla de árvores.
+ */
+public class RegionTreeTest {
+
+    private static Region main(String name, double latitude) {
+        return new Region(name, latitude, -43.9345, 1L, 1);
+    }
+
+    @Test
+    public void replaceRegion_keepsChildrenAndRepointsThem() {
+        RegionTree tree = new RegionTree();
+        Region antiga = main("antiga", -19.9167);
+        SubRegion sub = new SubRegion("sub", -19.91671, -43.9345, 1, 2L, antiga);
+        RestrictedRegion restrita = new RestrictedRegion("restrita", -19.91672, -43.9345, 1, 3L, true, antiga);
+        tree.addChild(antiga, sub);
+        tree.addChild(antiga, restrita);
+
+        Region nova = main("nova", -19.91669);
+        assertTrue(tree.replaceRegion(antiga, nova));
+
+        assertEquals(3, tree.size());
+        assertFalse(tree.contains(antiga));
+        assertTrue(tree.contains(nova));
+        List<Region> children = tree.getChildren(nova);
+        assertEquals(2, children.size());
+        assertSame(sub, children.get(0));
+        assertSame(restrita, tree.lastChild(nova));
+        assertSame(nova, sub.getMainRegion());
+        assertSame(nova, restrita.getMainRegion());
+        assertSame(nova, tree.findMainRegionWithin(-19.91669, -43.9345, 30));
+        assertTrue(tree.hasChildWithin(nova, -19.91671, -43.9345, 5));
+        // A sub-região continua removível pela referência atualizada
+        assertTrue(tree.removeChild(sub.getMainRegion(), sub));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    public void replaceRegion_withUnknownRegionAddsIt() {
+        RegionTree tree = new RegionTree();
+        Region nova = main("nova", 10);
+
+        assertFalse(tree.replaceRegion(main("ausente", 11), nova));
+        assertEquals(1, tree.size());
+        assertTrue(tree.contains(nova));
+    }
+
+    @Test
+    public void replaceRegion_intoExistingRegionAppendsChildren() {
+        RegionTree tree = new RegionTree();
+        Region antiga = main("antiga", 10);
+        Region existente = main("existente", 20);
+        tree.addChild(antiga, new SubRegion("a", 10, -43.9345, 1, 2L, antiga));
+        tree.addChild(existente, new SubRegion("b", 20, -43.9345, 1, 3L, existente));
+
+        assertTrue(tree.replaceRegion(antiga, main("existente", 20)));
+
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.mainRegions().size());
+        assertEquals(2, tree.getChildren(existente).size());
+    }
+
+    @Test
+    public void merge_skipsRegionsAlreadyPresent() {
+        Region principal = main("principal", 10);
+        RegionTree tree = new RegionTree();
+        tree.addChild(principal, new SubRegion("a", 10, -43.9345, 1, 2L, principal));
+
+        RegionTree other = new RegionTree();
+        Region copia = main("principal", 10);
+        other.addChild(copia, new SubRegion("a", 10, -43.9345, 1, 2L, copia));
+        other.addChild(copia, new SubRegion("b", 10.00001, -43.9345, 1, 3L, copia));
+
+        assertEquals(1, tree.merge(other));
+        assertEquals(3, tree.size());
+        assertEquals(2, tree.getChildren(principal).size());
+    }
+}
@@ -28,6 +28,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    testOptions {
+        // Os testes na JVM usam classes que registram mensagens com android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -39,8 +43,7 @@ dependencies {
     implementation("com.google.android.gms:play-services-maps:18.0.0")
     implementation("com.google.android.gms:play-services-location:19.0.0")
     implementation("com.google.android.libraries.places:places:3.1.0")
-    implementation ("com.example:biblioteca:1.0")
-    implementation ("com.fasterxml.jackson.core:jackson-databind:2.12.3")
+    implementation(project(":Biblioteca"))
     implementation(libs.firebase.database)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
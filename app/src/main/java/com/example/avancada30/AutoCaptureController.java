@@ -0,0 +1,109 @@
+/**
+ * Modo de captura automática de regiões a partir do fluxo de localizações.
+ *
+ * Recebe as coordenadas suavizadas pelo CustomLocationManager (inclusive as que não atingiram a distância mínima,
+ * para que a permanência de um usuário parado seja detectada) e envia uma localização ao SaveLocationPipeline quando o
+ * usuário permanece dentro de um raio por um tempo mínimo (permanência), sem depender do botão de salvar.
+ *
+ * Principais funcionalidades:
+ * - Detecção de permanência: a captura ocorre depois de dwellMillis dentro de dwellRadiusMeters do ponto de referência.
+ * - Limite de taxa: no máximo uma captura a cada minCaptureIntervalMillis.
+ * - Contrapressão: enquanto uma captura ainda está no pipeline, as novas oportunidades de captura são descartadas.
+ *
+ * Os métodos de onCoordinates são chamados pela thread de localização; a configuração pode ser feita por qualquer thread.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.util.Log;
+
+import com.example.biblioteca.Region;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+public class AutoCaptureController implements CoordinateListener {
+    private static final String TAG = "AutoCaptureController";
+    public static final double DEFAULT_DWELL_RADIUS_METERS = 10;
+    public static final long DEFAULT_DWELL_MILLIS = 30000; // 30 segundos
+    public static final long DEFAULT_MIN_CAPTURE_INTERVAL_MILLIS = 60000; // 1 minuto
+
+    private final SaveLocationPipeline pipeline;
+    private final SaveLocationPipeline.Callback callback;
+    private final AtomicBoolean busy = new AtomicBoolean(false); // Captura em andamento no pipeline
+    private volatile boolean enabled = false;
+    private volatile double dwellRadiusMeters = DEFAULT_DWELL_RADIUS_METERS;
+    private volatile long dwellMillis = DEFAULT_DWELL_MILLIS;
+    private volatile long minCaptureIntervalMillis = DEFAULT_MIN_CAPTURE_INTERVAL_MILLIS;
+
+    // Ponto de referência da permanência atual (acessado apenas pela thread de localização)
+    private double anchorLatitude;
+    private double anchorLongitude;
+    private long anchorTimeMillis = -1;
+    private boolean anchorCaptured = false;
+    private long lastCaptureMillis = -1;
+
+    /**
+     * @param pipeline O pipeline que recebe as localizações capturadas.
+     * @param callback O callback que recebe o resultado de cada captura.
+     */
+    public AutoCaptureController(SaveLocationPipeline pipeline, SaveLocationPipeline.Callback callback) {
+        this.pipeline = pipeline;
+        this.callback = callback;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    public void setDwellRadiusMeters(double dwellRadiusMeters) {
+        this.dwellRadiusMeters = dwellRadiusMeters;
+    }
+    public void setDwellMillis(long dwellMillis) {
+        this.dwellMillis = dwellMillis;
+    }
+    public void setMinCaptureIntervalMillis(long minCaptureIntervalMillis) {
+        this.minCaptureIntervalMillis = minCaptureIntervalMillis;
+    }
+
+    @Override
+    public void onCoordinates(double latitude, double longitude, long timeMillis) {
+        if (!enabled) {
+            anchorTimeMillis = -1;
+            return;
+        }
+        // Saiu do raio (ou primeira localização): a permanência recomeça a partir deste ponto
+        if (anchorTimeMillis < 0 || Region.distanceMeters(anchorLatitude, anchorLongitude, latitude, longitude) > dwellRadiusMeters) {
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+            anchorTimeMillis = timeMillis;
+            anchorCaptured = false;
+            return;
+        }
+        if (anchorCaptured || timeMillis - anchorTimeMillis < dwellMillis) {
+            return;
+        }
+        if (lastCaptureMillis >= 0 && timeMillis - lastCaptureMillis < minCaptureIntervalMillis) {
+            return;
+        }
+        if (!busy.compareAndSet(false, true)) {
+            Log.d(TAG, "Pipeline ocupado: captura descartada");
+            return;
+        }
+        anchorCaptured = true;
+        lastCaptureMillis = timeMillis;
+        Log.d(TAG, "Permanência detectada: capturando " + latitude + ", " + longitude);
+        pipeline.save(latitude, longitude, false, callback).whenComplete(new BiConsumer<Region, Throwable>() {
+            @Override
+            public void accept(Region region, Throwable error) {
+                busy.set(false);
+            }
+        });
+    }
+}
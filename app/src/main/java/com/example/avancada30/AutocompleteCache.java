@@ -0,0 +1,106 @@
+/**
+ * Cache LRU das previsões de autocompletar, indexado pelo texto consultado.
+ *
+ * Além das consultas idênticas, o cache responde consultas que estendem uma consulta já feita: para "Belo Horiz",
+ * as previsões em cache de "Belo Hori" (ou de qualquer prefixo mais curto) que ainda contêm o texto digitado são
+ * devolvidas sem uma nova chamada à Places API. Isso só vale para um prefixo cujo resultado estava completo: a
+ * Places API devolve no máximo resultLimit previsões, e um resultado truncado pode não conter as previsões da
+ * consulta mais longa.
+ *
+ * A classe é sincronizada e pode ser usada por várias threads.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class AutocompleteCache {
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final int PLACES_RESULT_LIMIT = 5; // Número máximo de previsões devolvidas pela Places API
+
+    private final int maxEntries;
+    private final int resultLimit;
+    private final LinkedHashMap<String, List<String>> previsoes;
+
+    public AutocompleteCache() {
+        this(DEFAULT_MAX_ENTRIES, PLACES_RESULT_LIMIT);
+    }
+
+    /**
+     * @param maxEntries  O número máximo de consultas em cache.
+     * @param resultLimit O número máximo de previsões devolvidas por consulta; um resultado com esse tamanho pode ter
+     *                    sido truncado e não é usado para responder consultas mais longas.
+     */
+    public AutocompleteCache(int maxEntries, int resultLimit) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Número máximo de entradas deve ser positivo: " + maxEntries);
+        }
+        if (resultLimit <= 0) {
+            throw new IllegalArgumentException("Limite de previsões deve ser positivo: " + resultLimit);
+        }
+        this.maxEntries = maxEntries;
+        this.resultLimit = resultLimit;
+        this.previsoes = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > AutocompleteCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Busca as previsões para a consulta: primeiro a própria consulta e, em seguida, os seus prefixos com resultado
+     * completo, do mais longo para o mais curto, filtrando as previsões que contêm o texto consultado.
+     *
+     * @param query O texto digitado.
+     * @return As previsões encontradas, ou null se o cache não puder responder a consulta.
+     */
+    public synchronized List<String> get(String query) {
+        String chave = normalizar(query);
+        List<String> exatas = previsoes.get(chave);
+        if (exatas != null) {
+            return exatas;
+        }
+        for (int tamanho = chave.length() - 1; tamanho > 0; tamanho--) {
+            List<String> doPrefixo = previsoes.get(chave.substring(0, tamanho));
+            if (doPrefixo == null || doPrefixo.size() >= resultLimit) {
+                // Um resultado no limite da API pode ter deixado de fora as previsões da consulta mais longa
+                continue;
+            }
+            List<String> filtradas = new ArrayList<>();
+            for (String previsao : doPrefixo) {
+                if (normalizar(previsao).contains(chave)) {
+                    filtradas.add(previsao);
+                }
+            }
+            // Sem previsões compatíveis, o prefixo não diz nada sobre a nova consulta
+            return filtradas.isEmpty() ? null : filtradas;
+        }
+        return null;
+    }
+
+    public synchronized void put(String query, List<String> resultado) {
+        previsoes.put(normalizar(query), Collections.unmodifiableList(new ArrayList<>(resultado)));
+    }
+
+    public synchronized int size() {
+        return previsoes.size();
+    }
+
+    public synchronized void clear() {
+        previsoes.clear();
+    }
+
+    private static String normalizar(String texto) {
+        return texto.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,12 +1,16 @@
 /**
- * Esta classe representa uma thread responsável por consultar o banco de dados Firebase para obter informações sobre as regiões armazenadas.
- * Ela implementa a lógica para verificar se uma nova região a ser adicionada já existe no banco de dados e se está muito próxima de outras regiões existentes.
- * Se a nova região não existir no banco de dados e não estiver muito próxima de outras regiões, inicia uma nova thread para atualizar as regiões.
+ * Esta classe é responsável por consultar o banco de dados Firebase para obter as regiões armazenadas que são relevantes
+ * para uma nova localização.
+ * A decisão sobre a inserção da nova região é feita pelo RegionStore, que recebe a árvore de regiões devolvida aqui.
  *
  * Principais funcionalidades:
- * - Consulta o banco de dados Firebase para obter informações sobre as regiões armazenadas.
- * - Verifica se uma nova região a ser adicionada já existe no banco de dados e se está muito próxima de outras regiões existentes.
- * - Inicia uma nova thread para atualizar as regiões, se necessário.
+ * - Consulta a réplica local do nó "regioes", quando ela já estiver sincronizada.
+ * - Caso contrário, consulta o banco de dados Firebase para obter informações sobre as regiões armazenadas.
+ * - Descriptografa os registros do snapshot em paralelo, em blocos, e monta a árvore na ordem das chaves.
+ * - Para uma localização, lê o snapshot em blocos de tamanho limitado e devolve apenas a região principal mais
+ *   próxima e as suas sub-regiões; com as chaves no formato de push(), as sub-regiões das demais regiões principais
+ *   nem são descriptografadas, e a leitura termina assim que a região mais próxima não pode mais mudar.
+ * - Consulta de todas as regiões do servidor de uma só vez, para o posicionamento de lotes de localizações.
  * - Registra mensagens de log para monitorar o status da consulta ao banco de dados.
  *
  * Autor: Leonardo Monteiro
@@ -16,317 +20,436 @@
 
 package com.example.avancada30;
 
-
-
 import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.example.biblioteca.Region;
-import com.example.biblioteca.RestrictedRegion;
-import com.example.biblioteca.SubRegion;
+import com.example.biblioteca.RegionCodec;
+import com.example.biblioteca.RegionKind;
+import com.example.biblioteca.RegionPlacementEngine;
+import com.example.biblioteca.RegionTree;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import org.json.JSONObject;
-
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.Semaphore;
-
-public class ConsultDatabase extends Thread {
-    private List<Region> regions;
-    private String newName;
-    private double newlatitude;
-    private double newlongitude;
-    private Semaphore semaphore;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ConsultDatabase {
+    public static final int DECRYPT_CHUNK_SIZE = 256; // Registros descriptografados por tarefa
+    private static final int PUSH_KEY_LENGTH = 20; // Tamanho das chaves geradas por push()
+    private static final double MAIN_RADIUS_METERS = RegionPlacementEngine.DEFAULT_MAIN_RADIUS_METERS;
+    private final RegionReplica replica;
+    private final Executor decoder;
+    private final ForkJoinPool workers;
     private DatabaseReference databaseReference = FirebaseDatabase.getInstance().getReference();
 
+    public ConsultDatabase(RegionReplica replica, Executor decoder) {
+        this(replica, decoder, ForkJoinPool.commonPool());
+    }
 
-    public ConsultDatabase(List<Region> regions, String locationName, double latitude, double longitude, Semaphore semaphore) {
-        this.regions = regions;
-        this.newName = locationName;
-        this.newlatitude = latitude;
-        this.newlongitude = longitude;
-        this.semaphore = semaphore;
+    /**
+     * @param replica A réplica local do nó "regioes"; pode ser null.
+     * @param decoder O executor em que os registros do snapshot são decodificados, fora da thread principal.
+     * @param workers O pool em que os registros são descriptografados em paralelo; o seu paralelismo limita as threads usadas.
+     */
+    public ConsultDatabase(RegionReplica replica, Executor decoder, ForkJoinPool workers) {
+        this.replica = replica;
+        this.decoder = decoder;
+        this.workers = workers;
+    }
 
+    /**
+     * Consulta as regiões do servidor para a nova localização.
+     *
+     * @param latitude  A latitude da nova localização.
+     * @param longitude A longitude da nova localização.
+     * @return Um future com a árvore das regiões lidas do servidor.
+     */
+    public CompletableFuture<RegionTree> consultar(final double latitude, final double longitude) {
+        // Com a réplica local sincronizada, não é necessário baixar o nó "regioes" novamente
+        if (replica != null && replica.isReady()) {
+            Log.d("Consulta Banco de Dados", "Consultando réplica local (" + replica.size() + " regiões)");
+            // Basta a região principal a menos de 30 metros e as suas sub-regiões, sem copiar a réplica inteira
+            return CompletableFuture.completedFuture(replica.copyNearby(latitude, longitude, MAIN_RADIUS_METERS));
+        }
+        return lerServidor(false, latitude, longitude);
     }
 
-    @Override
-    public void run() {
-        Log.d("Consulta Banco de Dados", "Thread Inicializada");
-        Log.d("Consulta Banco de Dados", "Nova localização " + newName);
-        consultarBanco();
+    /**
+     * Consulta todas as regiões do servidor, para posicionar várias localizações sobre o mesmo snapshot.
+     *
+     * @return Um future com uma cópia da árvore de todas as regiões do servidor.
+     */
+    public CompletableFuture<RegionTree> consultarTodas() {
+        if (replica != null && replica.isReady()) {
+            Log.d("Consulta Banco de Dados", "Copiando réplica local (" + replica.size() + " regiões)");
+            return CompletableFuture.completedFuture(replica.copyTree());
+        }
+        return lerServidor(true, 0, 0);
     }
 
-    private void consultarBanco() {
+    // Baixa o nó "regioes" uma vez e o decodifica no executor; sem completo, retorna apenas a região mais próxima
+    private CompletableFuture<RegionTree> lerServidor(final boolean completo, final double latitude, final double longitude) {
+        final CompletableFuture<RegionTree> resultado = new CompletableFuture<>();
         DatabaseReference regioesRef = databaseReference.child("regioes");
-        List<Region> regionsFromDatabase = new ArrayList<>();
         regioesRef.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                for (DataSnapshot childSnapshot : snapshot.getChildren()) {
-                    try {
-                        JSONObject encryptedData = new JSONObject(childSnapshot.getValue(String.class));
-
-                        if (encryptedData.has("restricted") && encryptedData.has("mainRegion")) {
-                            String encryptedRestricted = encryptedData.getString("restricted");
-                            boolean restricted = Boolean.parseBoolean(CriptografiaAES.descriptografar(encryptedRestricted));
-
-                            JSONObject encryptedMainRegion = encryptedData.getJSONObject("mainRegion");
-
-                            // Reconstruir o objeto da região principal
-                            String encryptedMainRegionLatitude = encryptedMainRegion.getString("latitude");
-                            String encryptedMainRegionLongitude = encryptedMainRegion.getString("longitude");
-                            String encryptedMainRegionName = encryptedMainRegion.getString("name");
-                            String encryptedMainRegionTimestamp = encryptedMainRegion.getString("timestamp");
-                            String encryptedMainRegionUser = encryptedMainRegion.getString("user");
-
-                            String encryptedLatitude = encryptedData.getString("latitude");
-                            String encryptedLongitude = encryptedData.getString("longitude");
-                            String encryptedName = encryptedData.getString("name");
-                            String encryptedTimestamp = encryptedData.getString("timestamp");
-                            String encryptedUser = encryptedData.getString("user");
-
-                            // Descriptografar os valores dos atributos
-                            String latitude = CriptografiaAES.descriptografar(encryptedLatitude);
-                            String longitude = CriptografiaAES.descriptografar(encryptedLongitude);
-                            String name = CriptografiaAES.descriptografar(encryptedName);
-                            Long timestamp = Long.valueOf(CriptografiaAES.descriptografar(encryptedTimestamp));
-                            int user = Integer.parseInt(CriptografiaAES.descriptografar(encryptedUser));
-
-                            // Descriptografar os valores dos atributos da região principal
-                            String mainRegionLatitude = CriptografiaAES.descriptografar(encryptedMainRegionLatitude);
-                            String mainRegionLongitude = CriptografiaAES.descriptografar(encryptedMainRegionLongitude);
-                            String mainRegionName = CriptografiaAES.descriptografar(encryptedMainRegionName);
-                            Long mainRegionTimestamp = Long.valueOf(CriptografiaAES.descriptografar(encryptedMainRegionTimestamp));
-                            int mainRegionUser = Integer.parseInt(CriptografiaAES.descriptografar(encryptedMainRegionUser));
-
-                            // Construir o objeto da região principal
-                            Region mainRegion = new Region(mainRegionName, Double.parseDouble(mainRegionLatitude), Double.parseDouble(mainRegionLongitude), mainRegionTimestamp, mainRegionUser);
-
-                            // Construir o objeto RestrictedRegion com os valores descriptografados
-                            RestrictedRegion restrictedRegion = new RestrictedRegion(name, Double.parseDouble(latitude), Double.parseDouble(longitude), user, timestamp, restricted, mainRegion);
-
-                            // Adicionar a região restrita reconstruída à lista de regiões
-                            regionsFromDatabase.add(restrictedRegion);
-                        }
-
-                        else if (encryptedData.has("mainRegion")) {
-                            JSONObject encryptedMainRegion = encryptedData.getJSONObject("mainRegion");
-
-                            // Reconstruir o objeto da região principal
-                            String encryptedMainRegionLatitude = encryptedMainRegion.getString("latitude");
-                            String encryptedMainRegionLongitude = encryptedMainRegion.getString("longitude");
-                            String encryptedMainRegionName = encryptedMainRegion.getString("name");
-                            String encryptedMainRegionTimestamp = encryptedMainRegion.getString("timestamp");
-                            String encryptedMainRegionUser = encryptedMainRegion.getString("user");
-
-                            // Descriptografar os valores dos atributos da região principal
-                            String mainRegionLatitude = CriptografiaAES.descriptografar(encryptedMainRegionLatitude);
-                            String mainRegionLongitude = CriptografiaAES.descriptografar(encryptedMainRegionLongitude);
-                            String mainRegionName = CriptografiaAES.descriptografar(encryptedMainRegionName);
-                            Long mainRegionTimestamp = Long.valueOf(CriptografiaAES.descriptografar(encryptedMainRegionTimestamp));
-                            int mainRegionUser = Integer.parseInt(CriptografiaAES.descriptografar(encryptedMainRegionUser));
-
-                            String encryptedLatitude = encryptedData.getString("latitude");
-                            String encryptedLongitude = encryptedData.getString("longitude");
-                            String encryptedName = encryptedData.getString("name");
-                            String encryptedTimestamp = encryptedData.getString("timestamp");
-                            String encryptedUser = encryptedData.getString("user");
-
-                            // Descriptografar os valores dos atributos
-                            String latitude = CriptografiaAES.descriptografar(encryptedLatitude);
-                            String longitude = CriptografiaAES.descriptografar(encryptedLongitude);
-                            String name = CriptografiaAES.descriptografar(encryptedName);
-                            Long timestamp = Long.valueOf(CriptografiaAES.descriptografar(encryptedTimestamp));
-                            int user = Integer.parseInt(CriptografiaAES.descriptografar(encryptedUser));
-
-                            // Construir o objeto da região principal
-                            Region mainRegion = new Region(mainRegionName, Double.parseDouble(mainRegionLatitude), Double.parseDouble(mainRegionLongitude), mainRegionTimestamp, mainRegionUser);
-
-                            // Construir o objeto SubRegion com os valores descriptografados
-                            SubRegion subRegion = new SubRegion(name, Double.parseDouble(latitude), Double.parseDouble(longitude), user, timestamp, mainRegion);
-
-                            // Adicionar a sub-região reconstruída à lista de regiões
-                            regionsFromDatabase.add(subRegion);
-                        }
-
-                        // Verificar se é uma Região simples
-                        else if (encryptedData.has("latitude") && encryptedData.has("longitude") &&
-                                encryptedData.has("name") && encryptedData.has("timestamp") &&
-                                encryptedData.has("user")) {
-
-                            String encryptedLatitude = encryptedData.getString("latitude");
-                            String encryptedLongitude = encryptedData.getString("longitude");
-                            String encryptedName = encryptedData.getString("name");
-                            String encryptedTimestamp = encryptedData.getString("timestamp");
-                            String encryptedUser = encryptedData.getString("user");
-
-                            // Descriptografar os valores dos atributos
-                            String latitude = CriptografiaAES.descriptografar(encryptedLatitude);
-                            String longitude = CriptografiaAES.descriptografar(encryptedLongitude);
-                            String name = CriptografiaAES.descriptografar(encryptedName);
-                            Long timestamp = Long.valueOf(CriptografiaAES.descriptografar(encryptedTimestamp));
-                            int user = Integer.parseInt(CriptografiaAES.descriptografar(encryptedUser));
-
-                            // Construir o objeto Region com os valores descriptografados
-                            Region region = new Region(name, Double.parseDouble(latitude), Double.parseDouble(longitude), timestamp, user);
-
-                            // Adicionar a região reconstruída à lista de regiões
-                            regionsFromDatabase.add(region);
-                        }
-
-                    } catch (Exception e) {
-                        e.printStackTrace();
+            public void onDataChange(@NonNull final DataSnapshot snapshot) {
+                // O Firebase entrega o snapshot na thread principal: a descriptografia é feita no executor
+                decoder.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        resultado.complete(lerRegioes(snapshot, completo, latitude, longitude));
                     }
-                }
-
-                processarRegioes(regionsFromDatabase);
+                });
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
                 Log.d("Consulta Banco de Dados", "Erro na leitura do Banco de Dados: " + error.getMessage());
-
+                resultado.completeExceptionally(error.toException());
             }
         });
+        return resultado;
     }
 
-    private void processarRegioes(List<Region> regionsFromDatabase) {
-        avaliaDados (regionsFromDatabase);
+    /**
+     * Decodifica os registros do snapshot do nó "regioes".
+     *
+     * Com completo, todos os registros são decodificados e montados em uma árvore, na ordem das chaves. Caso contrário,
+     * o resultado tem apenas a região principal mais próxima a menos de 30 metros da nova localização e as suas
+     * sub-regiões, como na consulta à réplica, e os registros são lidos em blocos por lerRegiaoProxima.
+     *
+     * @param snapshot O snapshot do nó "regioes".
+     * @param completo Se true, todas as regiões são retornadas.
+     * @return A árvore com as regiões lidas.
+     */
+    private RegionTree lerRegioes(DataSnapshot snapshot, boolean completo, double latitude, double longitude) {
+        if (!completo) {
+            return lerRegiaoProxima(snapshot.getChildren().iterator(), latitude, longitude);
+        }
+        int total = (int) snapshot.getChildrenCount();
+        String[] chaves = new String[total];
+        String[] registros = new String[total];
+        int n = 0;
+        for (DataSnapshot childSnapshot : snapshot.getChildren()) {
+            if (n == total) {
+                break;
+            }
+            chaves[n] = childSnapshot.getKey();
+            registros[n] = valor(childSnapshot);
+            n++;
+        }
+        return montarArvore(chaves, registros, n);
+    }
+
+    // Decodifica todos os registros, na ordem das chaves
+    private RegionTree montarArvore(String[] chaves, String[] registros, int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        JsonConverter.DecryptedRecord[] decifrados = new JsonConverter.DecryptedRecord[n];
+        workers.invoke(new DescriptografarRegistros(registros, decifrados, indices, 0, n));
+
+        RegionTree arvoreBD = new RegionTree();
+        // Regiões principais já lidas, para resolver as referências dos registros de sub-regiões
+        Map<String, Region> regioesPorChave = new HashMap<>();
+        Region ultimaPrincipal = null;
+        for (int i = 0; i < n; i++) {
+            Region region = converter(decifrados[i], chaves[i], regioesPorChave::get);
+            decifrados[i] = null;
+            if (region == null) {
+                continue;
+            }
+            if (region.kind() == RegionKind.REGION) {
+                arvoreBD.addRegion(region);
+                regioesPorChave.put(chaves[i], region);
+                ultimaPrincipal = region;
+            } else {
+                Region mainRegion = Region.mainRegionOf(region);
+                if (mainRegion == null) {
+                    mainRegion = ultimaPrincipal;
+                }
+                if (mainRegion != null) {
+                    arvoreBD.addChild(mainRegion, region);
+                }
+            }
+        }
+        return arvoreBD;
     }
 
+    /**
+     * Lê os registros em blocos, na ordem das chaves, mantendo apenas a região principal mais próxima encontrada até
+     * o momento e as suas sub-regiões. A memória usada é limitada pelo tamanho do bloco, e não pelo tamanho do banco.
+     *
+     * Em cada bloco, os registros são descriptografados em paralelo no pool de workers, exceto os de sub-regiões com
+     * chave no formato de push() (chave da região principal, "_" e outra chave gerada): pela chave já se sabe se são
+     * da região mais próxima, e apenas estas são descriptografadas, ao final. Os registros com outras chaves (por
+     * exemplo, dados antigos com chaves numéricas) são descriptografados e associados à região principal indicada
+     * no registro ou, sem ela, à última região principal lida.
+     *
+     * A leitura termina antes do fim do snapshot quando a região mais próxima está a menos da metade do raio de
+     * 30 metros e a sequência das suas sub-regiões terminou: como o RegionPlacementEngine só cria uma região
+     * principal a mais de 30 metros das demais, nenhuma outra região principal pode estar mais próxima.
+     */
+    private RegionTree lerRegiaoProxima(Iterator<DataSnapshot> filhosSnapshot, double latitude, double longitude) {
+        int tamanhoBloco = DECRYPT_CHUNK_SIZE * Math.max(1, workers.getParallelism());
+        String[] chaves = new String[tamanhoBloco];
+        String[] registros = new String[tamanhoBloco];
+        JsonConverter.DecryptedRecord[] decifrados = new JsonConverter.DecryptedRecord[tamanhoBloco];
+        int[] indices = new int[tamanhoBloco];
+        BuscaRegiaoProxima busca = new BuscaRegiaoProxima(latitude, longitude);
+        int lidos = 0;
+        while (!busca.concluida() && filhosSnapshot.hasNext()) {
+            int n = 0;
+            while (n < tamanhoBloco && filhosSnapshot.hasNext()) {
+                DataSnapshot childSnapshot = filhosSnapshot.next();
+                chaves[n] = childSnapshot.getKey();
+                registros[n] = valor(childSnapshot);
+                n++;
+            }
+            int quantidade = 0;
+            for (int i = 0; i < n; i++) {
+                if (!chaveDeSubRegiao(chaves[i])) {
+                    indices[quantidade++] = i;
+                }
+            }
+            workers.invoke(new DescriptografarRegistros(registros, decifrados, indices, 0, quantidade));
+            for (int i = 0; i < n && !busca.concluida(); i++) {
+                busca.aplicar(chaves[i], registros[i], decifrados[i]);
+                lidos++;
+            }
+            Arrays.fill(decifrados, 0, n, null);
+            Arrays.fill(registros, 0, n, null);
+        }
 
+        RegionTree arvoreBD = busca.montarArvore(workers);
+        Log.d("Consulta Banco de Dados", lidos + " registros lidos" + (busca.concluida() ? " (leitura encerrada antes do fim)" : "")
+                + (arvoreBD.isEmpty() ? "; nenhuma região principal próxima" : ""));
+        return arvoreBD;
+    }
 
-    public void avaliaDados(List<Region> listaBD) {
+    private static String valor(DataSnapshot childSnapshot) {
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            return childSnapshot.getValue(String.class);
+        } catch (Exception e) {
+            e.printStackTrace(); // O registro fica null e é ignorado
+            return null;
+        }
+    }
+
+    // Converte um registro descriptografado em região e atribui a chave; retorna null se o registro for inválido
+    private static Region converter(JsonConverter.DecryptedRecord decifrado, String chave, RegionCodec.MainRegionResolver resolver) {
+        if (decifrado == null) {
+            return null;
+        }
+        Region region;
+        try {
+            region = decifrado.toRegion(resolver);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (region != null) {
+            region.setStorageKey(chave);
+        }
+        return region;
+    }
+
+    /**
+     * Verifica se a chave segue o formato gravado pelo FirebaseDataSaver para sub-regiões: a chave da região
+     * principal gerada por push() (20 caracteres), "_" e outra chave gerada.
+     */
+    private static boolean chaveDeSubRegiao(String chave) {
+        return chave.length() == 2 * PUSH_KEY_LENGTH + 1 && chave.charAt(PUSH_KEY_LENGTH) == '_'
+                && caracteresDePush(chave, 0, PUSH_KEY_LENGTH) && caracteresDePush(chave, PUSH_KEY_LENGTH + 1, chave.length());
+    }
+
+    private static boolean caracteresDePush(String chave, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            char c = chave.charAt(i);
+            if (!(c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estado da leitura em blocos de lerRegiaoProxima: a região principal mais próxima até o momento e as suas
+     * sub-regiões, na ordem das chaves. Os registros devem ser aplicados na ordem do snapshot.
+     */
+    private static final class BuscaRegiaoProxima implements RegionCodec.MainRegionResolver {
+        // Região principal provisória das sub-regiões que referenciam uma região principal desconhecida
+        private static final Region DESCONHECIDA = new Region();
+
+        private final double latitude;
+        private final double longitude;
+        private Region maisProxima;
+        private double menorDistancia = MAIN_RADIUS_METERS;
+        private String prefixoFilhos;
+        private Region ultimaPrincipal;
+        private boolean filhosConcluidos = false; // Um registro de outra região principal veio depois da mais próxima
+        // Sub-regiões da mais próxima, em ordem: com chave de push(), apenas o registro, descriptografado no final
+        private final List<String> chavesFilhos = new ArrayList<>();
+        private final List<String> registrosFilhos = new ArrayList<>();
+        private final List<Region> regioesFilhos = new ArrayList<>();
+
+        BuscaRegiaoProxima(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        boolean concluida() {
+            return maisProxima != null && filhosConcluidos && menorDistancia < MAIN_RADIUS_METERS / 2;
         }
 
-        if(regions.isEmpty() && listaBD.isEmpty()){
-            Log.d("Consulta Banco de Dados", " Lista e Banco Vazios ");
-            semaphore.release();
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD, newName, newlatitude, newlongitude, semaphore,true);
-            thread.start();
-        } else if(!regions.isEmpty() && listaBD.isEmpty()){
-            Log.d("Consulta Banco de Dados", " Lista Cheia e Banco Vazio ");
-            semaphore.release();
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD, newName, newlatitude, newlongitude, semaphore,true);
-            thread.start();
-        }else if (regions.isEmpty() && !listaBD.isEmpty()){
-            Log.d("Consulta Banco de Dados", " Lista Vazia e Banco Cheio ");
-            semaphore.release();
-            verificaBanco(listaBD);
-
-        }else if (!regions.isEmpty() && !listaBD.isEmpty()) {
-            Log.d("Consulta Banco de Dados", " Lista e Banco Cheios ");
-            semaphore.release();
-            boolean verifica = false;
-            for (int i = 0; i < listaBD.size(); i++) {
-                if (listaBD.get(i).getClass().equals(Region.class)) { //Verifica se alguma região(Region) do banco esta a mesnos de 30 metros de distancia do novo dado
-                    double distancia = listaBD.get(i).calculateDistance(listaBD.get(i).getLatitude(), listaBD.get(i).getLongitude(), newlatitude, newlongitude);
-                    if (distancia < 30) {
-                        verifica = true;
-                        break; // Se encontrarmos uma região a menos de 30 metros, podemos sair do loop
+        @Override
+        public Region resolve(String storageKey) {
+            if (maisProxima != null && storageKey.equals(maisProxima.storageKey())) {
+                return maisProxima;
+            }
+            if (ultimaPrincipal != null && storageKey.equals(ultimaPrincipal.storageKey())) {
+                return ultimaPrincipal;
+            }
+            return DESCONHECIDA;
+        }
+
+        void aplicar(String chave, String registro, JsonConverter.DecryptedRecord decifrado) {
+            if (chaveDeSubRegiao(chave)) {
+                if (prefixoFilhos != null && chave.startsWith(prefixoFilhos)) {
+                    adicionarFilho(chave, registro, null);
+                } else {
+                    encerrarFilhos();
+                }
+                return;
+            }
+            Region region = converter(decifrado, chave, this);
+            if (region == null) {
+                return;
+            }
+            if (region.kind() == RegionKind.REGION) {
+                ultimaPrincipal = region;
+                encerrarFilhos();
+                if (region.withinMeters(latitude, longitude, menorDistancia)) {
+                    double distancia = region.distanceMeters(latitude, longitude);
+                    if (distancia < menorDistancia) {
+                        maisProxima = region;
+                        menorDistancia = distancia;
+                        prefixoFilhos = chave + "_";
+                        filhosConcluidos = false;
+                        chavesFilhos.clear();
+                        registrosFilhos.clear();
+                        regioesFilhos.clear();
                     }
                 }
+                return;
             }
-            if (verifica == true){
-                verificaBanco(listaBD);
-            }else{ // passa somente os dados.
-                RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD, newName, newlatitude, newlongitude, semaphore,false);
-                thread.start();
+            Region mainRegion = Region.mainRegionOf(region);
+            if (mainRegion == null) {
+                mainRegion = ultimaPrincipal;
+            }
+            // Sem chave de push(), só um novo registro de região principal encerra a sequência de sub-regiões
+            if (maisProxima != null && mainRegion != DESCONHECIDA && maisProxima.equals(mainRegion)) {
+                adicionarFilho(chave, null, region);
             }
         }
-    }
 
-    private void verificaBanco(List<Region> listaBD) {
-        int indexRegiaoMenorQue30 = -1;
-        for (int i = 0; i < listaBD.size(); i++) {
-            if ("Region".equals(nomeSimplesUltimoElemento(listaBD, i))) {
-                double distancia = listaBD.get(i).calculateDistance(listaBD.get(i).getLatitude(), listaBD.get(i).getLongitude(), newlatitude, newlongitude);
-                if (distancia < 30) {
-                    indexRegiaoMenorQue30 = i;
-                    break;
-                }
+        private void adicionarFilho(String chave, String registro, Region region) {
+            chavesFilhos.add(chave);
+            registrosFilhos.add(registro);
+            regioesFilhos.add(region);
+        }
+
+        private void encerrarFilhos() {
+            if (maisProxima != null) {
+                filhosConcluidos = true;
             }
         }
 
-        if (indexRegiaoMenorQue30 != -1) {
-            if (indexRegiaoMenorQue30 == listaBD.size() - 1) {
-                Log.d("Consulta Banco de Dados", " Adicionando SubRegion (Último elemento do banco)");
-                RegionUpdaterThread thread = new RegionUpdaterThread(regions, listaBD,indexRegiaoMenorQue30, newName, newlatitude, newlongitude, semaphore, listaBD.get(indexRegiaoMenorQue30));
-                thread.start();
-            } else {
-                boolean avalia = false;
-                int posUltimoElementoAssociadoaRegion = -1;
-                for (int i = indexRegiaoMenorQue30 +1; i < listaBD.size(); i++) {
-                    if (("SubRegion".equals(nomeSimplesUltimoElemento(listaBD, i))) || ("RestrictedRegion".equals(nomeSimplesUltimoElemento(listaBD, i)))) {
-                        double distancia = listaBD.get(i).calculateDistance(listaBD.get(i).getLatitude(), listaBD.get(i).getLongitude(), newlatitude, newlongitude);
-                        if (distancia < 5) {
-                            avalia = true;
-                            break;
-                        }
-                    } else {
-                        posUltimoElementoAssociadoaRegion = i - 1;
-                        break;
-                    }
+        // Descriptografa em paralelo as sub-regiões guardadas apenas como registro e monta a árvore resultante
+        RegionTree montarArvore(ForkJoinPool workers) {
+            RegionTree arvoreBD = new RegionTree();
+            if (maisProxima == null) {
+                return arvoreBD;
+            }
+            arvoreBD.addRegion(maisProxima);
+            int quantidade = chavesFilhos.size();
+            String[] registros = registrosFilhos.toArray(new String[0]);
+            JsonConverter.DecryptedRecord[] decifrados = new JsonConverter.DecryptedRecord[quantidade];
+            int[] indices = new int[quantidade];
+            int pendentes = 0;
+            for (int i = 0; i < quantidade; i++) {
+                if (registros[i] != null) {
+                    indices[pendentes++] = i;
                 }
-                if (avalia) {
-                    Log.d("Consulta Banco de Dados", " Nova região não pode ser inserida (Distância menor que 5 metros detectada)");
-                } else if ((posUltimoElementoAssociadoaRegion != -1) && (!avalia)) {
-                    Log.d("Consulta Banco de Dados", " Encontrou uma Region após indexRegiaoMenorQue30 e nenhum elemento SubRegion ou RestrictedRegion associado a indexRegiaoMenorQue30 está a menos de 5 metros de distância da nova região 1");
-                    verificaTipo(listaBD, posUltimoElementoAssociadoaRegion);
-                } else if ((posUltimoElementoAssociadoaRegion == -1) && (!avalia)) {
-                    Log.d("Consulta Banco de Dados", " Não encontrou uma Region após indexRegiaoMenorQue30 e nenhum elemento SubRegion ou RestrictedRegion associado a indexRegiaoMenorQue30 está a menos de 5 metros de distância da nova região 2");
-                    verificaTipo(listaBD, listaBD.size() - 1);
+            }
+            workers.invoke(new DescriptografarRegistros(registros, decifrados, indices, 0, pendentes));
+            for (int i = 0; i < quantidade; i++) {
+                Region region = regioesFilhos.get(i);
+                if (region == null) {
+                    region = converter(decifrados[i], chavesFilhos.get(i), this);
+                    if (region == null || region.kind() == RegionKind.REGION || Region.mainRegionOf(region) == DESCONHECIDA) {
+                        continue;
+                    }
                 }
+                arvoreBD.addChild(maisProxima, region);
             }
-        } else {
-            Log.d("Consulta Banco de Dados", " Nenhuma região do banco está a menos de 30 metros de distância do novo dado");
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD, newName, newlatitude, newlongitude, semaphore);
-            thread.start();
+            return arvoreBD;
         }
     }
 
-    private void verificaTipo(List<Region> listaBD, int index) {
-        if ("SubRegion".equals(nomeSimplesUltimoElemento(listaBD, index))) {
-            Log.d("Consulta Banco de Dados", " Adicionando RestrictedRegion");
-            SubRegion subregion = (SubRegion)listaBD.get(index);
-            Region mainRegion = subregion.getMainRegion();
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD,index, newName, newlatitude, newlongitude, semaphore, true, mainRegion);
-            thread.start();
-        } else  if ("RestrictedRegion".equals(nomeSimplesUltimoElemento(listaBD, index))){
-            Log.d("Consulta Banco de Dados", " Adicionando SubRegion");
-            RestrictedRegion restrictedRegion = (RestrictedRegion) listaBD.get(index);
-            Region mainRegion = restrictedRegion.getMainRegion();
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD,index,newName, newlatitude, newlongitude, semaphore, mainRegion);
-            thread.start();
-        }else{
-            Log.d("Consulta Banco de Dados", " Adicionando SubRegion");
-
-            Region mainRegion = listaBD.get(index);
-            RegionUpdaterThread thread = new RegionUpdaterThread(regions,listaBD,index, newName, newlatitude, newlongitude, semaphore, mainRegion);
-            thread.start();
+    /**
+     * Descriptografa os registros das posições indices[inicio..fim), dividindo o intervalo ao meio até blocos de
+     * DECRYPT_CHUNK_SIZE registros. Cada registro é gravado na mesma posição em que estava, de forma que a ordem
+     * das chaves é preservada. Um registro que não pode ser descriptografado fica null e é ignorado.
+     */
+    private static final class DescriptografarRegistros extends RecursiveAction {
+        private final String[] registros;
+        private final JsonConverter.DecryptedRecord[] decifrados;
+        private final int[] indices;
+        private final int inicio;
+        private final int fim;
+
+        DescriptografarRegistros(String[] registros, JsonConverter.DecryptedRecord[] decifrados, int[] indices, int inicio, int fim) {
+            this.registros = registros;
+            this.decifrados = decifrados;
+            this.indices = indices;
+            this.inicio = inicio;
+            this.fim = fim;
         }
-    }
 
-    public static String nomeSimplesUltimoElemento(List<?> listaBD, int index) {
-        if (listaBD == null || listaBD.isEmpty()) {
-            return null;
-        } else {
-            Object ultimoElemento = listaBD.get(index);
-            return ultimoElemento.getClass().getSimpleName();
+        @Override
+        protected void compute() {
+            if (fim - inicio > DECRYPT_CHUNK_SIZE) {
+                int meio = (inicio + fim) >>> 1;
+                invokeAll(new DescriptografarRegistros(registros, decifrados, indices, inicio, meio),
+                        new DescriptografarRegistros(registros, decifrados, indices, meio, fim));
+                return;
+            }
+            for (int j = inicio; j < fim; j++) {
+                int i = indices[j];
+                if (registros[i] == null) {
+                    continue;
+                }
+                try {
+                    decifrados[i] = JsonConverter.decryptRegionRecord(registros[i]);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
         }
     }
-
-
-
-
 }
-
@@ -0,0 +1,10 @@
+package com.example.avancada30;
+
+/**
+ * Recebe as localizações que passaram pelo filtro de precisão do CustomLocationManager como coordenadas primitivas,
+ * inclusive as que não atingiram a distância mínima,
+ * na thread que recebe as atualizações de localização (e não na thread principal).
+ */
+public interface CoordinateListener {
+    void onCoordinates(double latitude, double longitude, long timeMillis);
+}
@@ -2,6 +2,9 @@ package com.example.avancada30;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
 
 public class CriptografiaAES {
@@ -9,12 +12,25 @@ public class CriptografiaAES {
 
     private static final String ALGORITHM = "AES";
     private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final SecretKeySpec CHAVE = new SecretKeySpec(CHAVE_SECRETA.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+
+    // Cipher não é thread-safe: cada thread mantém suas próprias instâncias já inicializadas,
+    // evitando Cipher.getInstance e init a cada valor criptografado
+    private static final ThreadLocal<Cipher> CIFRADOR = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return criarCipher(Cipher.ENCRYPT_MODE);
+        }
+    };
+    private static final ThreadLocal<Cipher> DECIFRADOR = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return criarCipher(Cipher.DECRYPT_MODE);
+        }
+    };
 
     public static String criptografar(String texto) throws Exception {
-        SecretKeySpec chave = new SecretKeySpec(CHAVE_SECRETA.getBytes(), ALGORITHM);
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        cipher.init(Cipher.ENCRYPT_MODE, chave);
-        byte[] textoCriptografado = cipher.doFinal(texto.getBytes("UTF-8"));
+        byte[] textoCriptografado = criptografar(texto.getBytes(StandardCharsets.UTF_8));
         return Base64.getEncoder().encodeToString(textoCriptografado);
     }
 
@@ -22,12 +38,43 @@ public class CriptografiaAES {
         if (textoCriptografado == null) {
             return null;
         }
-        SecretKeySpec chave = new SecretKeySpec(CHAVE_SECRETA.getBytes(), ALGORITHM);
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        cipher.init(Cipher.DECRYPT_MODE, chave);
         byte[] textoBytes = Base64.getDecoder().decode(textoCriptografado);
-        byte[] textoDescriptografado = cipher.doFinal(textoBytes);
-        return new String(textoDescriptografado, "UTF-8");
+        byte[] textoDescriptografado = descriptografar(textoBytes);
+        return new String(textoDescriptografado, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Criptografa os bytes informados, sem a conversão para String/Base64.
+     */
+    public static byte[] criptografar(byte[] dados) throws GeneralSecurityException {
+        return executar(CIFRADOR, dados);
+    }
+
+    /**
+     * Descriptografa os bytes informados, sem a conversão para String/Base64.
+     */
+    public static byte[] descriptografar(byte[] dados) throws GeneralSecurityException {
+        return executar(DECIFRADOR, dados);
+    }
+
+    private static byte[] executar(ThreadLocal<Cipher> ciphers, byte[] dados) throws GeneralSecurityException {
+        try {
+            // doFinal devolve o Cipher ao estado inicializado, pronto para a próxima chamada
+            return ciphers.get().doFinal(dados);
+        } catch (GeneralSecurityException e) {
+            ciphers.remove(); // Descarta a instância caso tenha ficado em estado inconsistente
+            throw e;
+        }
+    }
+
+    private static Cipher criarCipher(int modo) {
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(modo, CHAVE);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Não foi possível inicializar " + TRANSFORMATION, e);
+        }
     }
     // public static void main(String[] args) {
     // try {
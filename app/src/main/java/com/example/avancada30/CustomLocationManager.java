@@ -9,6 +9,9 @@
  * - Inicialização e interrupção das atualizações de localização em segundo plano.
  * - Registro de mensagens de log para monitorar o status das atualizações de localização.
  * - Envio de informações de localização para um ouvinte de callback registrado.
+ * - Envio das coordenadas filtradas, sem passar pela thread principal, para um CoordinateListener (captura automática).
+ * - Filtragem das localizações (LocationFilter): precisão mínima, distância mínima e suavização.
+ * - Amostragem adaptativa: com o dispositivo parado, as atualizações passam a ser menos frequentes e de menor consumo.
  *
  * Autor: Leonardo Monteiro
  * Data: 05/04/2024
@@ -39,12 +42,21 @@ public class CustomLocationManager {
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final long UPDATE_INTERVAL = 5000; // 5 segundos
     private static final int FASTEST_UPDATE_INTERVAL = 2000; // 2 segundos
+    private static final long STATIONARY_UPDATE_INTERVAL = 30000; // 30 segundos
+    private static final long STATIONARY_FASTEST_UPDATE_INTERVAL = 15000; // 15 segundos
+    private static final double STATIONARY_SPEED = 0.5; // Metros por segundo
+    private static final long STATIONARY_DELAY = 60000; // Tempo abaixo de STATIONARY_SPEED para considerar o dispositivo parado
 
     private FusedLocationProviderClient fusedLocationProviderClient;
     private LocationCallback locationCallback;
     private LocationCallbackListener callbackListener;
+    private volatile CoordinateListener coordinateListener;
     private Handler handler;
     private Context context;
+    private final LocationFilter locationFilter = new LocationFilter();
+    private Looper updatesLooper; // Looper da thread que recebe as atualizações
+    private boolean stationary = false;
+    private long slowSinceMillis = -1; // Início do período abaixo de STATIONARY_SPEED
 
     public CustomLocationManager(Context context) {
         this.context = context;
@@ -64,6 +76,22 @@ public class CustomLocationManager {
     }
 
 
+    /**
+     * Define o ouvinte que recebe as coordenadas filtradas diretamente na thread das atualizações de localização.
+     */
+    public void setCoordinateListener(CoordinateListener listener) {
+        this.coordinateListener = listener;
+    }
+
+
+    /**
+     * Retorna o filtro aplicado às localizações, para configuração da distância mínima e da precisão mínima.
+     */
+    public LocationFilter getLocationFilter() {
+        return locationFilter;
+    }
+
+
     /**
      * Inicia as atualizações de localização em segundo plano.
      * Cria uma nova thread para executar a lógica de iniciar as atualizações de localização.
@@ -129,24 +157,63 @@ public class CustomLocationManager {
     /**
      * Inicia as atualizações de localização.
      * Verifica se a permissão de localização foi concedida.
-     * Se a permissão foi concedida, cria uma solicitação de localização com prioridade alta.
-     * Define o intervalo de atualização e o intervalo mais rápido de atualização.
+     * Se a permissão foi concedida, cria uma solicitação de localização de acordo com o modo de amostragem atual.
      * Solicita atualizações de localização ao provedor de localização fundida usando a solicitação de localização criada.
      * Registra uma mensagem de log informando que as atualizações de localização foram iniciadas.
      * Se a permissão de localização não foi concedida, registra uma mensagem de log informando que as atualizações de localização não podem ser iniciadas devido à falta de permissões.
      */
     private void startLocationUpdates() {
         if (checkLocationPermission()) { // Verifica se a permissão de localização foi concedida
-            LocationRequest locationRequest = LocationRequest.create(); // Cria uma solicitação de localização
+            updatesLooper = Looper.myLooper();
+            requestLocationUpdates();
+            Log.d(TAG, "Location updates started."); // Registra uma mensagem de log informando que as atualizações de localização foram iniciadas
+        } else {
+            Log.d(TAG, "Location updates cannot be started due to lack of permissions."); // Se a permissão de localização não foi concedida, registra uma mensagem de log informando que as atualizações de localização não podem ser iniciadas devido à falta de permissões
+        }
+    }
+
+
+    // Solicita (ou substitui) as atualizações conforme o modo de amostragem: alta precisão em movimento,
+    // menor consumo e intervalos maiores com o dispositivo parado
+    private void requestLocationUpdates() {
+        LocationRequest locationRequest = LocationRequest.create(); // Cria uma solicitação de localização
+        if (stationary) {
+            locationRequest.setPriority(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+            locationRequest.setInterval(STATIONARY_UPDATE_INTERVAL);
+            locationRequest.setFastestInterval(STATIONARY_FASTEST_UPDATE_INTERVAL);
+        } else {
             locationRequest.setPriority(LocationRequest.PRIORITY_HIGH_ACCURACY); // Define a prioridade da solicitação como alta precisão
             locationRequest.setInterval(UPDATE_INTERVAL); // Define o intervalo de atualização
             locationRequest.setFastestInterval(FASTEST_UPDATE_INTERVAL); // Define o intervalo mais rápido de atualização
+        }
+        try {
+            // Uma nova solicitação com o mesmo callback substitui a anterior
+            fusedLocationProviderClient.requestLocationUpdates(locationRequest, locationCallback, updatesLooper);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Location permission revoked: " + e.getMessage());
+        }
+    }
 
-            // Solicita atualizações de localização ao provedor de localização fundida usando a solicitação de localização criada
-            fusedLocationProviderClient.requestLocationUpdates(locationRequest, locationCallback, Looper.myLooper());
-            Log.d(TAG, "Location updates started."); // Registra uma mensagem de log informando que as atualizações de localização foram iniciadas
-        } else {
-            Log.d(TAG, "Location updates cannot be started due to lack of permissions."); // Se a permissão de localização não foi concedida, registra uma mensagem de log informando que as atualizações de localização não podem ser iniciadas devido à falta de permissões
+
+    // Alterna o modo de amostragem conforme a velocidade
+    private void adaptSampling(Location location) {
+        double speed = location.hasSpeed() ? location.getSpeed() : locationFilter.getSpeedMetersPerSecond();
+        long now = location.getTime();
+        if (speed >= STATIONARY_SPEED) {
+            slowSinceMillis = -1;
+            if (stationary) {
+                stationary = false;
+                Log.d(TAG, "Movement detected. Switching to high accuracy updates.");
+                requestLocationUpdates();
+            }
+        } else if (!stationary) {
+            if (slowSinceMillis < 0) {
+                slowSinceMillis = now;
+            } else if (now - slowSinceMillis >= STATIONARY_DELAY) {
+                stationary = true;
+                Log.d(TAG, "Device stationary. Switching to balanced power updates.");
+                requestLocationUpdates();
+            }
         }
     }
 
@@ -172,8 +239,11 @@ public class CustomLocationManager {
      * Cria um callback de localização.
      * Cria um novo LocationCallback e substitui seu método onLocationResult().
      * No método onLocationResult(), verifica se o objeto LocationResult não é nulo.
-     * Se não for nulo, obtém a última localização do objeto LocationResult.
-     * Se a localização não for nula e o callbackListener não for nulo, envia a nova localização recebida para o callbackListener usando um Handler.
+     * Se não for nulo, obtém a última localização do objeto LocationResult e a passa pelo LocationFilter.
+     * Se a localização não for descartada e o callbackListener não for nulo, envia a localização suavizada para o callbackListener usando um Handler.
+     * As coordenadas que passaram pelo filtro de precisão também são enviadas ao coordinateListener, na própria thread
+     * das atualizações, mesmo sem a distância mínima.
+     * Em seguida, ajusta o modo de amostragem conforme a velocidade.
      */
     private void createLocationCallback() {
         // Cria um novo LocationCallback e substitui seu método onLocationResult()
@@ -182,9 +252,24 @@ public class CustomLocationManager {
             public void onLocationResult(LocationResult locationResult) {
                 if (locationResult != null) { // Verifica se o objeto LocationResult não é nulo
                     final Location location = locationResult.getLastLocation(); // Obtém a última localização do objeto LocationResult
-                    if (location != null && callbackListener != null) { // Verifica se a localização não é nula e se o callbackListener não é nulo
-                        handler.post(() -> callbackListener.onNewLocationReceived(location)); // Envia a nova localização recebida para o callbackListener usando um Handler
+                    if (location == null) {
+                        return;
+                    }
+                    // Localizações sem precisão informada são tratadas como imprecisas e descartadas
+                    double accuracy = location.hasAccuracy() ? location.getAccuracy() : Double.POSITIVE_INFINITY;
+                    boolean accepted = locationFilter.accept(location.getLatitude(), location.getLongitude(), accuracy, location.getTime());
+                    if (accepted && callbackListener != null) { // Verifica se a localização foi aceita e se o callbackListener não é nulo
+                        final Location smoothed = new Location(location);
+                        smoothed.setLatitude(locationFilter.getLatitude());
+                        smoothed.setLongitude(locationFilter.getLongitude());
+                        handler.post(() -> callbackListener.onNewLocationReceived(smoothed)); // Envia a localização suavizada para o callbackListener usando um Handler
+                    }
+                    CoordinateListener listener = coordinateListener;
+                    // A detecção de permanência precisa das localizações de um usuário parado, que a distância mínima descarta
+                    if (locationFilter.isLastMeasurementUsed() && listener != null) {
+                        listener.onCoordinates(locationFilter.getLatitude(), locationFilter.getLongitude(), location.getTime());
                     }
+                    adaptSampling(location);
                 }
             }
         };
@@ -1,96 +1,269 @@
+/**
+ * Responsável por gravar as regiões pendentes no nó "regioes" do Firebase.
+ * O RegionStore chama saveData a partir da sua thread única, que é a dona da árvore de regiões.
+ *
+ * As escritas não vão direto ao servidor: são gravadas primeiro na PendingWriteQueue (fila durável em disco) e
+ * depois drenadas em segundo plano, um lote por vez. Cada lote só sai da fila após a confirmação do servidor; em caso
+ * de falha, o envio é repetido com espera exponencial. As escritas que ficaram na fila quando o aplicativo foi
+ * encerrado são enviadas na próxima execução. Como cada região tem uma chave estável, reenviar um lote já gravado
+ * apenas sobrescreve os mesmos registros.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
 package com.example.avancada30;
 
-import android.content.Context;
 import android.util.Log;
 
 import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionKind;
+import com.example.biblioteca.RegionTree;
+import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
-import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
-public class FirebaseDataSaver extends Thread {
+public class FirebaseDataSaver {
 
-    private static final String TAG = "FirebaseDataSaver";
-    private DatabaseReference referencia = FirebaseDatabase.getInstance().getReference();
-    private Context context;
-    private List<Region> regions;
-    private Semaphore semaphore;
-    private   int i = 0;
-    private volatile boolean running = true; // Flag para controlar a execução do loop
+    /**
+     * Ouvinte do resultado de cada lote enviado ao servidor.
+     */
+    public interface BatchListener {
+        void onBatchSaved(int count);
+        void onBatchFailed(int count, DatabaseError error);
+    }
 
-    public FirebaseDataSaver(Context context, List<Region> regions, Semaphore semaphore) {
-        this.context = context;
-        this.regions = regions;
-        this.semaphore = semaphore;
+    /**
+     * Ouvinte das chaves cujas escritas foram confirmadas pelo servidor, chamado pela thread que drena a fila.
+     */
+    public interface ConfirmationListener {
+        void onWritesConfirmed(Set<String> chaves);
     }
-    public FirebaseDataSaver(){}
 
-    public Context getContexto() {
-        return context;
+    private static final String TAG = "FirebaseDataSaver";
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final long INITIAL_RETRY_DELAY_MILLIS = 1000; // 1 segundo
+    public static final long MAX_RETRY_DELAY_MILLIS = 5 * 60 * 1000; // 5 minutos
+    private DatabaseReference referencia;
+    private final PendingWriteQueue fila;
+    private final ScheduledExecutorService executor; // Thread que drena a fila
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile BatchListener batchListener;
+    private volatile ConfirmationListener confirmationListener;
+    // Acessados somente pela thread que drena a fila
+    private boolean loteEmEnvio = false;
+    private long esperaAtual = INITIAL_RETRY_DELAY_MILLIS;
+
+    public FirebaseDataSaver(PendingWriteQueue fila) {
+        this(FirebaseDatabase.getInstance().getReference(), fila);
     }
-    public void setContexto(Context context) {
-        this.context = context;
+
+    /**
+     * @param referencia A referência raiz do banco de dados.
+     * @param fila       A fila durável das escritas pendentes. As escritas que já estiverem nela são enviadas em seguida.
+     */
+    public FirebaseDataSaver(DatabaseReference referencia, PendingWriteQueue fila) {
+        this.referencia = referencia;
+        this.fila = fila;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, TAG);
+            }
+        });
+        if (!fila.isEmpty()) {
+            Log.d(TAG, fila.size() + " escritas pendentes da execução anterior");
+            agendarEnvio(0);
+        }
     }
 
-    public List<Region> getRegion() {
-        return regions;
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Tamanho máximo do lote deve ser positivo: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
     }
-    public void setRegion(List<Region> regions) {
-        this.regions = regions;
+    public void setBatchListener(BatchListener batchListener) {
+        this.batchListener = batchListener;
     }
-    public Semaphore getsemaphore() {
-        return semaphore;
+    public void setConfirmationListener(ConfirmationListener confirmationListener) {
+        this.confirmationListener = confirmationListener;
     }
-    public void setsemaphore(Semaphore semaphore) {
-        this.semaphore = semaphore;
+
+    /**
+     * Retorna o número de escritas ainda não confirmadas pelo servidor.
+     */
+    public int getPendingCount() {
+        return fila.size();
     }
 
-    @Override
-    public void run() {
-        while (running) { // Executar o loop enquanto a flag running for true
-            try {
-                semaphore.acquire(); // Acquire semaphore before saving
+    /**
+     * Retorna true se a escrita da região com a chave informada ainda não foi confirmada pelo servidor.
+     */
+    public boolean isPending(String chave) {
+        return fila.contains(chave);
+    }
 
-                if (regions.isEmpty()) {
-                    semaphore.release(); // Release semaphore after saving
-                    synchronized (regions) {
-                        Log.d(TAG, "Aguardando lista");
-                        regions.wait(); // Aguardar até que a lista não esteja mais vazia
-                    }
-                }
-                else {
+    /**
+     * Grava as regiões pendentes na fila durável e agenda o envio, em lotes de até maxBatchSize registros, cada lote
+     * em uma única escrita multi-caminho (updateChildren). Cada região recebe uma chave estável na primeira vez que é
+     * salva: regiões principais usam uma chave gerada por push(), e as sub-regiões usam a chave da região principal
+     * como prefixo, de forma que fiquem ordenadas logo após ela no servidor.
+     *
+     * @param regions As regiões a serem salvas. A árvore não é alterada; cabe a quem chama limpá-la.
+     * @return O número de regiões gravadas na fila.
+     */
+    public int saveData(RegionTree regions) {
+        return saveData(regions, null);
+    }
 
-                    saveData();
+    /**
+     * Grava na fila apenas as regiões novas ou alteradas da árvore. As demais regiões (por exemplo, as copiadas do
+     * servidor) servem só para dar as chaves das regiões principais e não são reenviadas.
+     * Uma região sem chave nunca foi salva e é sempre enviada.
+     *
+     * @param regions    A árvore de regiões.
+     * @param alteradas  As regiões novas ou alteradas desde o último salvamento; null envia todas as regiões.
+     * @return O número de regiões gravadas na fila.
+     */
+    public int saveData(RegionTree regions, Set<Region> alteradas) {
+        DatabaseReference regiao = referencia.child("regioes");
+        Map<String, String> escritas = new LinkedHashMap<>();
+        String chavePrincipal = null;
 
-                    semaphore.release(); // Release semaphore after saving
-                    Log.d(TAG, "Semafaro Liberado.");
+        for (Region region : regions) {
+            boolean enviar = alteradas == null || region.storageKey() == null || alteradas.contains(region);
+            String chave;
+            if (region.kind() == RegionKind.REGION) {
+                chave = atribuirChave(regiao, region, null);
+                chavePrincipal = chave;
+            } else {
+                chave = atribuirChave(regiao, region, chavePrincipal);
+                // O registro da sub-região referencia a região principal pela chave
+                Region mainRegion = Region.mainRegionOf(region);
+                if (mainRegion != null && mainRegion.storageKey() == null) {
+                    mainRegion.setStorageKey(chavePrincipal);
                 }
-
-            } catch (InterruptedException e) {
-                Log.e(TAG, "InterruptedException: " + e.getMessage());
-                e.printStackTrace();
             }
+            if (!enviar) {
+                continue;
+            }
+            String encryptedJson = JsonConverter.regionToJsonEncrypted(region);
+            if (encryptedJson == null) {
+                Log.e(TAG, "Falha ao converter a região " + region.getName());
+                continue;
+            }
+            escritas.put(chave, encryptedJson);
         }
+        fila.enqueue(escritas);
+        agendarEnvio(0);
+        Log.d(TAG, escritas.size() + " regiões gravadas na fila de envio");
+        return escritas.size();
     }
 
-    public void stopThread() {
-        running = false; // Método para parar o loop
+    /**
+     * Encerra o envio. As escritas ainda não confirmadas continuam na fila durável para a próxima execução.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        fila.close();
     }
 
-    private void saveData() {
-        String encryptedJson;
-        DatabaseReference regiao = referencia.child("regioes");
+    private static String atribuirChave(DatabaseReference regiao, Region region, String chavePrincipal) {
+        if (region.storageKey() == null) {
+            String chave = regiao.push().getKey();
+            region.setStorageKey(chavePrincipal == null ? chave : chavePrincipal + "_" + chave);
+        }
+        return region.storageKey();
+    }
 
+    private void agendarEnvio(long esperaMillis) {
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    enviarPendentes();
+                }
+            }, esperaMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "Envio encerrado; as escritas continuam na fila");
+        }
+    }
 
-        for (Region region : regions) {
-            encryptedJson = JsonConverter.objectToJsonEncrypted(region);
-            regiao.child(String.valueOf(i)).setValue(encryptedJson);
-            i++;
+    // Envia o próximo lote da fila, se nenhum lote estiver aguardando confirmação
+    private void enviarPendentes() {
+        if (loteEmEnvio || fila.isEmpty()) {
+            return;
+        }
+        final Map<String, String> lote = fila.peek(maxBatchSize);
+        loteEmEnvio = true;
+        referencia.child("regioes").updateChildren(new HashMap<String, Object>(lote), new DatabaseReference.CompletionListener() {
+            @Override
+            public void onComplete(final DatabaseError error, DatabaseReference ref) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            concluirLote(lote, error);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Envio encerrado: sem a confirmação gravada, o lote será reenviado na próxima execução
+                }
+            }
+        });
+    }
+
+    private void concluirLote(Map<String, String> lote, DatabaseError error) {
+        loteEmEnvio = false;
+        BatchListener listener = batchListener;
+        if (error == null) {
+            fila.acknowledge(lote);
+            notificarConfirmadas(lote);
+            esperaAtual = INITIAL_RETRY_DELAY_MILLIS;
+            Log.d(TAG, "Lote de " + lote.size() + " regiões salvo.");
+            if (listener != null) {
+                listener.onBatchSaved(lote.size());
+            }
+            enviarPendentes();
+        } else {
+            Log.e(TAG, "Falha ao salvar lote de " + lote.size() + " regiões: " + error.getMessage()
+                    + ". Nova tentativa em " + esperaAtual + " ms");
+            if (listener != null) {
+                listener.onBatchFailed(lote.size(), error);
+            }
+            agendarEnvio(esperaAtual);
+            esperaAtual = Math.min(esperaAtual * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void notificarConfirmadas(Map<String, String> lote) {
+        ConfirmationListener listener = confirmationListener;
+        if (listener == null) {
+            return;
+        }
+        Set<String> confirmadas = new HashSet<>();
+        for (String chave : lote.keySet()) {
+            // Uma escrita substituída durante o envio continua pendente com o novo valor
+            if (!fila.contains(chave)) {
+                confirmadas.add(chave);
+            }
         }
-        i=0;
-        regions.clear(); // Clear list after successful saving
-        Log.d(TAG, "Dados Salvos no Servidor!");
+        listener.onWritesConfirmed(confirmadas);
     }
 }
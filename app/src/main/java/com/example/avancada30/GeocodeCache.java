@@ -0,0 +1,182 @@
+/**
+ * Cache LRU de nomes obtidos por geocodificação reversa, indexado por células de uma grade de latitude/longitude.
+ *
+ * Coordenadas que caem na mesma célula (por padrão, com cerca de 20 metros de lado) compartilham o mesmo nome,
+ * de forma que salvamentos repetidos no mesmo local não consultam o Geocoder novamente.
+ *
+ * Principais funcionalidades:
+ * - Tamanho da célula, validade (TTL) e número máximo de entradas configuráveis.
+ * - Descarte da entrada usada há mais tempo quando o limite é atingido.
+ * - Persistência opcional em SharedPreferences, para reaproveitar os nomes entre execuções do aplicativo.
+ *
+ * A classe é sincronizada e pode ser usada por várias threads.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.content.SharedPreferences;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GeocodeCache {
+    public static final double DEFAULT_CELL_SIZE_METERS = 20;
+    public static final long DEFAULT_TTL_MILLIS = 24 * 60 * 60 * 1000L; // 24 horas
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final double METERS_PER_DEGREE = 111320; // Comprimento aproximado de um grau de latitude
+    private static final String SEPARADOR = "\n";
+
+    private static class Entrada {
+        final String nome;
+        final long criadoEm;
+
+        Entrada(String nome, long criadoEm) {
+            this.nome = nome;
+            this.criadoEm = criadoEm;
+        }
+    }
+
+    private final double cellDegrees;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final SharedPreferences preferences;
+    private final LinkedHashMap<Long, Entrada> entradas;
+
+    public GeocodeCache() {
+        this(DEFAULT_CELL_SIZE_METERS, DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * @param cellSizeMeters O lado aproximado de cada célula, em metros.
+     * @param ttlMillis      O tempo de validade de cada nome, em milissegundos.
+     * @param maxEntries     O número máximo de células mantidas.
+     * @param preferences    Onde as entradas são persistidas; pode ser null para manter o cache apenas em memória.
+     */
+    public GeocodeCache(double cellSizeMeters, long ttlMillis, int maxEntries, SharedPreferences preferences) {
+        if (cellSizeMeters <= 0 || ttlMillis <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Parâmetros do cache devem ser positivos");
+        }
+        this.cellDegrees = cellSizeMeters / METERS_PER_DEGREE;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.preferences = preferences;
+        this.entradas = new LinkedHashMap<Long, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> eldest) {
+                if (size() <= GeocodeCache.this.maxEntries) {
+                    return false;
+                }
+                removerPersistida(eldest.getKey());
+                return true;
+            }
+        };
+        carregar();
+    }
+
+    /**
+     * Retorna o nome associado à célula das coordenadas, ou null se não houver um nome válido.
+     */
+    public synchronized String get(double latitude, double longitude) {
+        long chave = cellKey(latitude, longitude);
+        Entrada entrada = entradas.get(chave);
+        if (entrada == null) {
+            return null;
+        }
+        if (expirada(entrada, System.currentTimeMillis())) {
+            entradas.remove(chave);
+            removerPersistida(chave);
+            return null;
+        }
+        return entrada.nome;
+    }
+
+    /**
+     * Associa o nome à célula das coordenadas. Nomes nulos ou vazios são ignorados.
+     */
+    public synchronized void put(double latitude, double longitude, String nome) {
+        if (nome == null || nome.isEmpty()) {
+            return;
+        }
+        long chave = cellKey(latitude, longitude);
+        Entrada entrada = new Entrada(nome, System.currentTimeMillis());
+        entradas.put(chave, entrada);
+        if (preferences != null) {
+            preferences.edit().putString(Long.toString(chave), entrada.criadoEm + SEPARADOR + nome).apply();
+        }
+    }
+
+    public synchronized int size() {
+        return entradas.size();
+    }
+
+    public synchronized void clear() {
+        entradas.clear();
+        if (preferences != null) {
+            preferences.edit().clear().apply();
+        }
+    }
+
+    // Célula de latitude e, dentro dela, célula de longitude com largura ajustada para que as células sejam quadradas
+    private long cellKey(double latitude, double longitude) {
+        int row = (int) Math.floor((latitude + 90) / cellDegrees);
+        double centerLatitude = (row + 0.5) * cellDegrees - 90;
+        double cosLatitude = Math.max(Math.cos(Math.toRadians(centerLatitude)), 1e-6);
+        int column = (int) Math.floor((longitude + 180) * cosLatitude / cellDegrees);
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private boolean expirada(Entrada entrada, long agora) {
+        return agora - entrada.criadoEm > ttlMillis;
+    }
+
+    // Lê as entradas persistidas, descartando as expiradas; as mais antigas são inseridas primeiro
+    // para que, acima do limite, sejam elas as descartadas
+    private void carregar() {
+        if (preferences == null) {
+            return;
+        }
+        long agora = System.currentTimeMillis();
+        List<Map.Entry<Long, Entrada>> validas = new ArrayList<>();
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, ?> persistida : preferences.getAll().entrySet()) {
+            try {
+                String valor = (String) persistida.getValue();
+                int separador = valor.indexOf(SEPARADOR);
+                Entrada entrada = new Entrada(valor.substring(separador + 1), Long.parseLong(valor.substring(0, separador)));
+                if (!expirada(entrada, agora)) {
+                    validas.add(new AbstractMap.SimpleEntry<>(Long.parseLong(persistida.getKey()), entrada));
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // Entrada em formato inválido: é descartada
+            }
+            editor.remove(persistida.getKey());
+        }
+        editor.apply();
+
+        Collections.sort(validas, new Comparator<Map.Entry<Long, Entrada>>() {
+            @Override
+            public int compare(Map.Entry<Long, Entrada> a, Map.Entry<Long, Entrada> b) {
+                return Long.compare(a.getValue().criadoEm, b.getValue().criadoEm);
+            }
+        });
+        for (Map.Entry<Long, Entrada> valida : validas) {
+            entradas.put(valida.getKey(), valida.getValue());
+        }
+    }
+
+    private void removerPersistida(long chave) {
+        if (preferences != null) {
+            preferences.edit().remove(Long.toString(chave)).apply();
+        }
+    }
+}
@@ -1,68 +1,173 @@
 package com.example.avancada30;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionCodec;
+import com.example.biblioteca.RestrictedRegion;
+import com.example.biblioteca.SubRegion;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
+/**
+ * Conversão de regiões para os registros criptografados armazenados no nó "regioes" e vice-versa.
+ *
+ * Formatos de registro:
+ * - Versão 1 (legado): o JSON da região com o valor de cada atributo criptografado separadamente,
+ *   inclusive os atributos da região principal embutida.
+ * - Versão 2: {"v": 2, "data": ...}, onde "data" é o JSON completo da região criptografado em uma única
+ *   operação e codificado em Base64.
+ * - Versão 3: {"v": 3, "data": ...}, onde "data" é a região na codificação binária do RegionCodec, criptografada
+ *   e codificada em Base64. Sub-regiões referenciam a região principal pela chave, em vez de embuti-la.
+ *
+ * As regiões são gravadas na versão 3; a leitura aceita as três versões. A leitura é feita em duas etapas:
+ * decryptRegionRecord descriptografa o registro e DecryptedRecord.toRegion reconstrói a região. Ambas lançam
+ * exceção quando o registro não pode ser lido.
+ */
 public class JsonConverter {
-    private static ObjectMapper objectMapper = new ObjectMapper();
+    public static final int FORMAT_VERSION = 2;
+    public static final int BINARY_FORMAT_VERSION = 3;
+    private static final String VERSION_KEY = "v";
+    private static final String DATA_KEY = "data";
+    // Atributos lidos de um registro versão 1
+    private static final String[] REGION_FIELDS = {"latitude", "longitude", "name", "timestamp", "user", "restricted"};
 
-    // Método para converter um objeto para JSON com criptografia dos valores dos atributos
-    public static String objectToJsonEncrypted(Object obj) {
+    /**
+     * Converte uma região para um registro versão 3 (codificação binária criptografada).
+     * A região principal de uma sub-região é referenciada pela sua chave, que deve ser atribuída antes;
+     * se ainda não tiver chave, ela é embutida no registro.
+     *
+     * @param region A região a ser convertida.
+     * @return O registro a ser armazenado, ou null em caso de erro.
+     */
+    public static String regionToJsonEncrypted(Region region) {
         try {
-            // Convertendo o objeto para JSON
-            String json = objectMapper.writeValueAsString(obj);
-
-            // Convertendo o JSON para um objeto JSON
-            JSONObject jsonObject = new JSONObject(json);
-
-            // Iterando sobre as chaves do objeto JSON
-            Iterator<String> keys = jsonObject.keys();
-            while (keys.hasNext()) {
-                String key = keys.next();
-                // Verificando se o valor associado à chave é um objeto JSON
-                if (jsonObject.get(key) instanceof JSONObject) {
-                    // Se for um objeto JSON, iteramos sobre as suas chaves
-                    JSONObject innerObject = jsonObject.getJSONObject(key);
-                    Iterator<String> innerKeys = innerObject.keys();
-                    while (innerKeys.hasNext()) {
-                        String innerKey = innerKeys.next();
-                        // Criptografando o valor associado à chave do objeto interno
-                        String encryptedValue = CriptografiaAES.criptografar(innerObject.get(innerKey).toString());
-                        // Substituindo o valor original pelo valor criptografado
-                        innerObject.put(innerKey, encryptedValue);
-                    }
-                } else {
-                    // Criptografando o valor associado à chave
-                    String encryptedValue = CriptografiaAES.criptografar(jsonObject.get(key).toString());
-                    // Substituindo o valor original pelo valor criptografado
-                    jsonObject.put(key, encryptedValue);
-                }
-            }
-
-            // Convertendo o objeto JSON modificado de volta para uma string JSON
-            return jsonObject.toString();
+            byte[] encrypted = CriptografiaAES.criptografar(RegionCodec.encode(region));
+            JSONObject record = new JSONObject();
+            record.put(VERSION_KEY, BINARY_FORMAT_VERSION);
+            record.put(DATA_KEY, Base64.getEncoder().encodeToString(encrypted));
+            return record.toString();
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    // Método para converter JSON criptografado de volta para um objeto
-    public static <T> T jsonToObjectDecrypted(String encryptedJson, Class<T> clazz) {
-        try {
-            // Descriptografando o JSON
-            String json = CriptografiaAES.descriptografar(encryptedJson);
+    /**
+     * Registro do nó "regioes" já descriptografado, mas ainda não convertido em região.
+     * A descriptografia não depende dos outros registros e pode ser feita em paralelo; a conversão é barata, mas pode
+     * precisar das regiões principais já lidas e por isso é feita na ordem das chaves.
+     */
+    public static final class DecryptedRecord {
+        private final byte[] binary; // Registro versão 3
+        private final JSONObject json; // Registros versões 1 e 2, com os valores já descriptografados
 
-            // Convertendo o JSON de volta para o objeto
-            return objectMapper.readValue(json, clazz);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+        private DecryptedRecord(byte[] binary, JSONObject json) {
+            this.binary = binary;
+            this.json = json;
+        }
+
+        /**
+         * @param resolver Fornece as regiões principais já lidas, pela chave; pode ser null.
+         * @return A região reconstruída, ou null se o registro não tiver os atributos de uma região.
+         */
+        public Region toRegion(RegionCodec.MainRegionResolver resolver) throws Exception {
+            if (binary != null) {
+                return RegionCodec.decode(binary, resolver);
+            }
+            return regionFromJson(json);
+        }
+    }
+
+    /**
+     * Descriptografa um registro do nó "regioes" sem convertê-lo em região. Aceita os registros versão 3 (binário),
+     * versão 2 (uma única descriptografia por registro) e o formato legado, com os valores dos atributos
+     * criptografados um a um. Pode ser chamado por várias threads ao mesmo tempo.
+     *
+     * @param encryptedJson O registro armazenado no Firebase.
+     * @return O registro descriptografado.
+     * @throws Exception Se o JSON for inválido ou algum valor não puder ser descriptografado.
+     */
+    public static DecryptedRecord decryptRegionRecord(String encryptedJson) throws Exception {
+        JSONObject record = new JSONObject(encryptedJson);
+        if (!record.has(VERSION_KEY)) {
+            return new DecryptedRecord(null, decryptFields(record));
+        }
+        if (record.getInt(VERSION_KEY) == BINARY_FORMAT_VERSION) {
+            byte[] encrypted = Base64.getDecoder().decode(record.getString(DATA_KEY));
+            return new DecryptedRecord(CriptografiaAES.descriptografar(encrypted), null);
+        }
+        return new DecryptedRecord(null, new JSONObject(decryptRecord(record)));
+    }
+
+    // Descriptografa o JSON completo de um registro versão 2
+    private static String decryptRecord(JSONObject record) throws Exception {
+        int version = record.getInt(VERSION_KEY);
+        if (version != FORMAT_VERSION) {
+            throw new JSONException("Versão de registro não suportada: " + version);
+        }
+        byte[] encrypted = Base64.getDecoder().decode(record.getString(DATA_KEY));
+        return new String(CriptografiaAES.descriptografar(encrypted), StandardCharsets.UTF_8);
+    }
+
+    // Descriptografa os atributos de um registro versão 1 (inclusive os da região principal embutida)
+    private static JSONObject decryptFields(JSONObject data) throws Exception {
+        JSONObject decrypted = new JSONObject();
+        for (String key : REGION_FIELDS) {
+            if (data.has(key)) {
+                decrypted.put(key, CriptografiaAES.descriptografar(data.getString(key)));
+            }
+        }
+        if (data.has("mainRegion")) {
+            decrypted.put("mainRegion", decryptFields(data.getJSONObject("mainRegion")));
+        }
+        return decrypted;
+    }
+
+    private static Region regionFromJson(JSONObject data) throws Exception {
+        if (data.has("restricted") && data.has("mainRegion")) {
+            boolean restricted = Boolean.parseBoolean(value(data, "restricted"));
+
+            // Reconstruir o objeto da região principal
+            Region mainRegion = regionFromFields(data.getJSONObject("mainRegion"));
+            Region region = regionFromFields(data);
+
+            // Construir o objeto RestrictedRegion
+            return new RestrictedRegion(region.getName(), region.getLatitude(), region.getLongitude(), region.getuser(), region.getTimestamp(), restricted, mainRegion);
+        }
+
+        else if (data.has("mainRegion")) {
+            // Reconstruir o objeto da região principal
+            Region mainRegion = regionFromFields(data.getJSONObject("mainRegion"));
+            Region region = regionFromFields(data);
+
+            // Construir o objeto SubRegion
+            return new SubRegion(region.getName(), region.getLatitude(), region.getLongitude(), region.getuser(), region.getTimestamp(), mainRegion);
         }
+
+        // Verificar se é uma Região simples
+        else if (data.has("latitude") && data.has("longitude") &&
+                data.has("name") && data.has("timestamp") &&
+                data.has("user")) {
+            return regionFromFields(data);
+        }
+        return null;
+    }
+
+    // Lê os atributos básicos (latitude, longitude, nome, timestamp e usuário) de uma região
+    private static Region regionFromFields(JSONObject data) throws Exception {
+        String latitude = value(data, "latitude");
+        String longitude = value(data, "longitude");
+        String name = value(data, "name");
+        Long timestamp = Long.valueOf(value(data, "timestamp"));
+        int user = Integer.parseInt(value(data, "user"));
+
+        return new Region(name, Double.parseDouble(latitude), Double.parseDouble(longitude), timestamp, user);
+    }
+
+    private static String value(JSONObject data, String key) throws Exception {
+        return data.get(key).toString();
     }
 }
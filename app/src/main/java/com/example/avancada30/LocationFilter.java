@@ -0,0 +1,144 @@
+/**
+ * Filtro das localizações recebidas do provedor de localização.
+ *
+ * Cada nova localização passa por três etapas:
+ * - Descarte das localizações com precisão pior que maxAccuracyMeters.
+ * - Suavização por um filtro de Kalman simples (mesma variância para latitude e longitude), que usa a precisão
+ *   informada como ruído da medição e a velocidade esperada como ruído do processo.
+ * - Descarte das localizações suavizadas que se moveram menos de minDistanceMeters desde a última localização aceita.
+ *
+ * Também estima a velocidade a partir das localizações suavizadas, para a amostragem adaptativa.
+ * isLastMeasurementUsed() informa se a última medição passou pelas duas primeiras etapas, mesmo que tenha sido
+ * descartada pela distância mínima: a detecção de permanência precisa dessas localizações de um usuário parado.
+ *
+ * A classe não é sincronizada: deve ser usada pela thread que recebe as localizações.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import com.example.biblioteca.Region;
+
+public class LocationFilter {
+    public static final double DEFAULT_MIN_DISTANCE_METERS = 3;
+    public static final double DEFAULT_MAX_ACCURACY_METERS = 50;
+    public static final double DEFAULT_PROCESS_NOISE_METERS_PER_SECOND = 3; // Velocidade típica de caminhada
+
+    private double minDistanceMeters = DEFAULT_MIN_DISTANCE_METERS;
+    private double maxAccuracyMeters = DEFAULT_MAX_ACCURACY_METERS;
+    private double processNoiseMetersPerSecond = DEFAULT_PROCESS_NOISE_METERS_PER_SECOND;
+
+    // Estado do filtro de Kalman
+    private double latitude;
+    private double longitude;
+    private double variance = -1; // Negativa enquanto não houver nenhuma medição
+    private long timeMillis;
+
+    // Última localização aceita
+    private double acceptedLatitude;
+    private double acceptedLongitude;
+    private boolean hasAccepted = false;
+
+    private boolean lastMeasurementUsed = false; // A última medição atualizou o filtro de Kalman
+
+    private double speedMetersPerSecond = 0;
+
+    public double getMinDistanceMeters() {
+        return minDistanceMeters;
+    }
+    public void setMinDistanceMeters(double minDistanceMeters) {
+        this.minDistanceMeters = minDistanceMeters;
+    }
+    public double getMaxAccuracyMeters() {
+        return maxAccuracyMeters;
+    }
+    public void setMaxAccuracyMeters(double maxAccuracyMeters) {
+        this.maxAccuracyMeters = maxAccuracyMeters;
+    }
+    public void setProcessNoiseMetersPerSecond(double processNoiseMetersPerSecond) {
+        this.processNoiseMetersPerSecond = processNoiseMetersPerSecond;
+    }
+
+    /**
+     * Processa uma nova medição.
+     *
+     * @param latitude       A latitude medida.
+     * @param longitude      A longitude medida.
+     * @param accuracyMeters A precisão da medição (raio de 68% de confiança), em metros.
+     * @param timeMillis     O instante da medição, em milissegundos.
+     * @return True se a localização suavizada deve ser repassada, False se foi descartada.
+     */
+    public boolean accept(double latitude, double longitude, double accuracyMeters, long timeMillis) {
+        lastMeasurementUsed = false;
+        if (accuracyMeters > maxAccuracyMeters) {
+            return false;
+        }
+        double accuracy = Math.max(accuracyMeters, 1);
+
+        if (variance < 0) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.variance = accuracy * accuracy;
+            this.timeMillis = timeMillis;
+        } else {
+            double previousLatitude = this.latitude;
+            double previousLongitude = this.longitude;
+            long elapsed = timeMillis - this.timeMillis;
+            if (elapsed > 0) {
+                // A incerteza da posição cresce com o tempo desde a última medição
+                variance += elapsed * processNoiseMetersPerSecond * processNoiseMetersPerSecond / 1000.0;
+                this.timeMillis = timeMillis;
+            }
+            double gain = variance / (variance + accuracy * accuracy);
+            this.latitude += gain * (latitude - this.latitude);
+            this.longitude += gain * (longitude - this.longitude);
+            variance = (1 - gain) * variance;
+
+            if (elapsed > 0) {
+                speedMetersPerSecond = Region.distanceMeters(previousLatitude, previousLongitude, this.latitude, this.longitude) * 1000.0 / elapsed;
+            }
+        }
+        lastMeasurementUsed = true;
+
+        if (hasAccepted && Region.distanceMeters(acceptedLatitude, acceptedLongitude, this.latitude, this.longitude) < minDistanceMeters) {
+            return false;
+        }
+        acceptedLatitude = this.latitude;
+        acceptedLongitude = this.longitude;
+        hasAccepted = true;
+        return true;
+    }
+
+    /**
+     * Retorna true se a última medição passou pelo filtro de precisão e atualizou a localização suavizada,
+     * independentemente da distância mínima.
+     */
+    public boolean isLastMeasurementUsed() {
+        return lastMeasurementUsed;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Retorna a velocidade estimada entre as duas últimas localizações suavizadas, em metros por segundo.
+     */
+    public double getSpeedMetersPerSecond() {
+        return speedMetersPerSecond;
+    }
+
+    public void reset() {
+        variance = -1;
+        hasAccepted = false;
+        lastMeasurementUsed = false;
+        speedMetersPerSecond = 0;
+    }
+}
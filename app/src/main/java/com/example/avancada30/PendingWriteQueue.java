@@ -0,0 +1,345 @@
+/**
+ * Fila durável das escritas de regiões ainda não confirmadas pelo servidor.
+ *
+ * As escritas são gravadas em um arquivo de log somente de acréscimo antes de serem enviadas ao Firebase, e só saem
+ * da fila depois da confirmação do servidor. Assim, nada se perde quando o aplicativo é encerrado sem sinal de rede,
+ * e apenas as escritas pendentes são reenviadas na próxima execução.
+ *
+ * Principais funcionalidades:
+ * - Registro PUT (chave, JSON criptografado) para cada escrita e registro ACK para cada confirmação.
+ * - Cada registro tem tamanho e CRC32; um registro final incompleto (queda durante a gravação) é descartado ao carregar.
+ * - Um fsync por chamada, de forma que um lote inteiro custa uma única sincronização com o disco.
+ * - Compactação do arquivo quando os registros obsoletos passam do limite, regravando apenas as escritas pendentes.
+ * - Uma gravação que falha no meio pode deixar um registro parcial no arquivo; nenhum registro é acrescentado depois
+ *   dele (o carregamento descartaria tudo a partir dali): a próxima gravação regrava o log inteiro por compactação.
+ *
+ * Formato de cada registro: int tamanho, byte operação, int+bytes chave (UTF-8), [int+bytes valor (UTF-8)], long CRC32.
+ *
+ * A classe é sincronizada e pode ser usada por várias threads.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class PendingWriteQueue {
+    private static final String TAG = "PendingWriteQueue";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 256;
+    private static final byte PUT = 1;
+    private static final byte ACK = 2;
+    private static final int MAX_RECORD_SIZE = 1 << 20; // Tamanhos maiores indicam um registro corrompido
+
+    private final File file;
+    private final int compactionThreshold;
+    private final LinkedHashMap<String, String> pendentes = new LinkedHashMap<>();
+    private int registrosObsoletos = 0; // Registros do arquivo que não descrevem mais uma escrita pendente
+    private FileOutputStream saida;
+    private boolean fechada = false; // Depois de close(), o arquivo não é mais reaberto nem alterado
+    private boolean logInvalido = false; // Uma gravação falhou e o arquivo pode terminar em um registro parcial
+
+    public PendingWriteQueue(File file) {
+        this(file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param file                O arquivo de log. É criado se não existir.
+     * @param compactionThreshold O número de registros obsoletos a partir do qual o arquivo é compactado.
+     */
+    public PendingWriteQueue(File file, int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Limite de compactação deve ser positivo: " + compactionThreshold);
+        }
+        this.file = file;
+        this.compactionThreshold = compactionThreshold;
+        carregar();
+        abrir();
+    }
+
+    /**
+     * Grava as escritas no log e as adiciona à fila. Uma escrita com uma chave já pendente substitui a anterior.
+     *
+     * @param escritas As escritas, de chave da região para o JSON criptografado.
+     */
+    public synchronized void enqueue(Map<String, String> escritas) {
+        if (escritas.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> escrita : escritas.entrySet()) {
+            escreverRegistro(registros, PUT, escrita.getKey(), escrita.getValue());
+            if (pendentes.put(escrita.getKey(), escrita.getValue()) != null) {
+                registrosObsoletos++;
+            }
+        }
+        acrescentar(registros);
+    }
+
+    /**
+     * Retorna uma cópia das primeiras escritas pendentes, na ordem em que foram enfileiradas.
+     *
+     * @param max O número máximo de escritas.
+     */
+    public synchronized Map<String, String> peek(int max) {
+        Map<String, String> lote = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, String>> iterator = pendentes.entrySet().iterator();
+        while (lote.size() < max && iterator.hasNext()) {
+            Map.Entry<String, String> escrita = iterator.next();
+            lote.put(escrita.getKey(), escrita.getValue());
+        }
+        return lote;
+    }
+
+    /**
+     * Remove da fila as escritas confirmadas pelo servidor. Uma escrita substituída depois de enviada continua
+     * pendente, pois o valor confirmado não é mais o atual.
+     *
+     * @param confirmadas As escritas enviadas, como devolvidas por peek.
+     */
+    public synchronized void acknowledge(Map<String, String> confirmadas) {
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> escrita : confirmadas.entrySet()) {
+            String atual = pendentes.get(escrita.getKey());
+            if (atual != null && atual.equals(escrita.getValue())) {
+                pendentes.remove(escrita.getKey());
+                escreverRegistro(registros, ACK, escrita.getKey(), null);
+                registrosObsoletos += 2; // O PUT confirmado e o próprio ACK
+            }
+        }
+        if (registros.size() == 0) {
+            return;
+        }
+        // Os ACKs são gravados mesmo quando há compactação, para o caso de ela falhar
+        acrescentar(registros);
+        if (registrosObsoletos >= compactionThreshold && registrosObsoletos > pendentes.size()) {
+            compactar();
+        }
+    }
+
+    /**
+     * Retorna true se houver uma escrita pendente (ainda não confirmada) com a chave informada.
+     */
+    public synchronized boolean contains(String chave) {
+        return pendentes.containsKey(chave);
+    }
+
+    public synchronized int size() {
+        return pendentes.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendentes.isEmpty();
+    }
+
+    /**
+     * Fecha o arquivo de log. As escritas pendentes continuam no arquivo para a próxima execução.
+     * Depois de fechada, a fila não grava mais no arquivo: outra instância pode abri-lo em seguida.
+     */
+    public synchronized void close() {
+        if (logInvalido) {
+            compactar();
+        }
+        fechada = true;
+        fecharSaida();
+    }
+
+    // Lê o log, reaplicando os registros em ordem; o arquivo é truncado no primeiro registro inválido
+    private void carregar() {
+        if (!file.exists()) {
+            return;
+        }
+        long valido = 0;
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int tamanho;
+                try {
+                    tamanho = entrada.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (tamanho <= 0 || tamanho > MAX_RECORD_SIZE) {
+                    break;
+                }
+                byte[] conteudo = new byte[tamanho];
+                entrada.readFully(conteudo);
+                if (entrada.readLong() != crc(conteudo)) {
+                    break;
+                }
+                aplicar(conteudo);
+                valido += 4 + tamanho + 8;
+            }
+        } catch (EOFException e) {
+            // Registro final incompleto: é descartado abaixo
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao ler a fila de escritas pendentes: " + e.getMessage());
+        }
+        if (valido < file.length()) {
+            Log.w(TAG, "Descartando " + (file.length() - valido) + " bytes inválidos no fim da fila de escritas pendentes");
+            try (RandomAccessFile arquivo = new RandomAccessFile(file, "rw")) {
+                arquivo.setLength(valido);
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao truncar a fila de escritas pendentes: " + e.getMessage());
+            }
+        }
+        Log.d(TAG, pendentes.size() + " escritas pendentes carregadas");
+    }
+
+    private void aplicar(byte[] conteudo) throws IOException {
+        DataInputStream registro = new DataInputStream(new ByteArrayInputStream(conteudo));
+        byte operacao = registro.readByte();
+        String chave = lerString(registro);
+        if (operacao == PUT) {
+            if (pendentes.put(chave, lerString(registro)) != null) {
+                registrosObsoletos++;
+            }
+        } else if (operacao == ACK) {
+            pendentes.remove(chave);
+            registrosObsoletos += 2;
+        } else {
+            throw new IOException("Operação desconhecida: " + operacao);
+        }
+    }
+
+    private void abrir() {
+        try {
+            saida = abrirSaida();
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao abrir a fila de escritas pendentes: " + e.getMessage());
+        }
+    }
+
+    // Abre o log para acréscimo; sobrescrito nos testes para simular falhas de gravação
+    FileOutputStream abrirSaida() throws IOException {
+        return new FileOutputStream(file, true);
+    }
+
+    private void acrescentar(ByteArrayOutputStream registros) {
+        if (fechada) {
+            Log.w(TAG, "Fila de escritas pendentes fechada; registros não gravados");
+            return;
+        }
+        if (logInvalido) {
+            // Os registros já estão em pendentes e são gravados junto com as demais escritas pendentes
+            compactar();
+            return;
+        }
+        if (saida == null) {
+            abrir();
+            if (saida == null) {
+                return; // As escritas continuam pendentes em memória
+            }
+        }
+        try {
+            registros.writeTo(saida);
+            saida.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao gravar a fila de escritas pendentes: " + e.getMessage());
+            // O arquivo pode ter ficado com um registro parcial: nada mais é acrescentado depois dele
+            logInvalido = true;
+            fecharSaida();
+        }
+    }
+
+    // Regrava apenas as escritas pendentes em um arquivo temporário e o coloca no lugar do log
+    private void compactar() {
+        if (fechada) {
+            return;
+        }
+        File temporario = new File(file.getPath() + ".tmp");
+        ByteArrayOutputStream registros = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> escrita : pendentes.entrySet()) {
+            escreverRegistro(registros, PUT, escrita.getKey(), escrita.getValue());
+        }
+        try (FileOutputStream compactado = new FileOutputStream(temporario)) {
+            registros.writeTo(compactado);
+            compactado.getFD().sync();
+        } catch (IOException e) {
+            Log.e(TAG, "Erro ao compactar a fila de escritas pendentes: " + e.getMessage());
+            temporario.delete();
+            return;
+        }
+        fecharSaida();
+        if (temporario.renameTo(file)) {
+            registrosObsoletos = 0;
+            logInvalido = false;
+            Log.d(TAG, "Fila de escritas pendentes compactada: " + pendentes.size() + " escritas");
+        } else {
+            Log.e(TAG, "Erro ao substituir a fila de escritas pendentes pela versão compactada");
+            temporario.delete();
+        }
+        abrir();
+    }
+
+    private void fecharSaida() {
+        if (saida != null) {
+            try {
+                saida.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Erro ao fechar a fila de escritas pendentes: " + e.getMessage());
+            }
+            saida = null;
+        }
+    }
+
+    private static void escreverRegistro(ByteArrayOutputStream destino, byte operacao, String chave, String valor) {
+        try {
+            ByteArrayOutputStream conteudo = new ByteArrayOutputStream();
+            DataOutputStream registro = new DataOutputStream(conteudo);
+            registro.writeByte(operacao);
+            escreverString(registro, chave);
+            if (valor != null) {
+                escreverString(registro, valor);
+            }
+            byte[] bytes = conteudo.toByteArray();
+            DataOutputStream saida = new DataOutputStream(destino);
+            saida.writeInt(bytes.length);
+            saida.write(bytes);
+            saida.writeLong(crc(bytes));
+        } catch (IOException e) {
+            // Não ocorre ao escrever em memória
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void escreverString(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    private static String lerString(DataInputStream entrada) throws IOException {
+        int tamanho = entrada.readInt();
+        if (tamanho < 0 || tamanho > MAX_RECORD_SIZE) {
+            throw new IOException("Tamanho de texto inválido: " + tamanho);
+        }
+        byte[] bytes = new byte[tamanho];
+        entrada.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+}
@@ -7,7 +7,10 @@
  * Principais funcionalidades:
  * - Fornecimento de previsões de autocompletar com base na consulta de pesquisa fornecida.
  * - Implementação de um filtro para o AutoCompleteTextView que executa a filtragem de previsões de autocompletar com base no texto de restrição fornecido.
- * - Utilização de Tasks para buscar previsões de autocompletar de forma assíncrona e aguardar o resultado da tarefa por até 30 segundos.
+ * - Espera de DEBOUNCE_MILLIS após cada tecla: apenas o texto mais recente é consultado.
+ * - Cancelamento da requisição em andamento quando um novo texto é digitado.
+ * - Uso de um token de sessão (AutocompleteSessionToken) por sessão de digitação, encerrada quando um item é escolhido.
+ * - Cache LRU das previsões (AutocompleteCache), que também responde consultas que estendem uma consulta anterior.
  * - Registro de erros no log e exibição de Toasts em caso de exceções durante a execução da tarefa de busca de previsões de autocompletar.
  *
  * Autor: Leonardo Monteiro
@@ -19,6 +22,8 @@ package com.example.avancada30;
 
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.ArrayAdapter;
 import android.widget.Filter;
@@ -27,14 +32,18 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import com.google.android.gms.tasks.CancellationTokenSource;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.android.libraries.places.api.model.AutocompletePrediction;
+import com.google.android.libraries.places.api.model.AutocompleteSessionToken;
+import com.google.android.libraries.places.api.net.FindAutocompletePredictionsRequest;
 import com.google.android.libraries.places.api.net.FindAutocompletePredictionsResponse;
 import com.google.android.libraries.places.api.net.PlacesClient;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -42,15 +51,50 @@ import java.util.concurrent.TimeoutException;
 public class PlacesAutoCompleteAdapter extends ArrayAdapter<String> implements Filterable {
 
     private static final String TAG = "PlacesAutoCompleteAdap"; // Reduzido para 23 caracteres
+    public static final long DEBOUNCE_MILLIS = 300;
+    private static final long REQUEST_TIMEOUT_SECONDS = 10;
 
     private List<String> predictions = new ArrayList<>();
     private PlacesClient placesClient;
+    private final AutocompleteCache cache = new AutocompleteCache();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile String ultimaConsulta; // Texto mais recente digitado pelo usuário
+    private CancellationTokenSource requisicaoAtual; // Requisição em andamento, cancelada quando o texto muda
+    private AutocompleteSessionToken sessionToken;
 
     public PlacesAutoCompleteAdapter(Context context, PlacesClient placesClient) {
         super(context, android.R.layout.simple_dropdown_item_1line);
         this.placesClient = placesClient;
     }
 
+    /**
+     * Encerra a sessão de autocompletar atual. Deve ser chamado quando o usuário escolhe uma previsão,
+     * para que a próxima digitação use um novo token de sessão.
+     */
+    public synchronized void finishSession() {
+        sessionToken = null;
+    }
+
+    private synchronized AutocompleteSessionToken sessionToken() {
+        if (sessionToken == null) {
+            sessionToken = AutocompleteSessionToken.newInstance();
+        }
+        return sessionToken;
+    }
+
+    private synchronized CancellationTokenSource novaRequisicao() {
+        requisicaoAtual = new CancellationTokenSource();
+        return requisicaoAtual;
+    }
+
+    // Cancela a requisição em andamento, liberando a thread de filtragem para o texto mais recente
+    private synchronized void cancelarRequisicao() {
+        if (requisicaoAtual != null) {
+            requisicaoAtual.cancel();
+            requisicaoAtual = null;
+        }
+    }
+
     @Override
     public int getCount() {
         return predictions.size();
@@ -65,27 +109,49 @@ public class PlacesAutoCompleteAdapter extends ArrayAdapter<String> implements F
     /**
      * Obtém o filtro para o AutoCompleteTextView.
      * Retorna um novo filtro que executa a filtragem de previsões de autocompletar com base no texto de restrição fornecido.
-     * Se o texto de restrição não for nulo, chama o método getAutocomplete() para obter previsões de autocompletar com base no texto de restrição.
+     * Cada novo texto é registrado como a consulta mais recente. Na thread de filtragem, aguarda DEBOUNCE_MILLIS e descarta
+     * o texto se outro tiver sido digitado nesse intervalo; caso contrário, chama o método getAutocomplete().
      * Define os resultados do filtro com as novas previsões e seu número correspondente.
      * Se houver resultados válidos, atualiza a lista de previsões e notifica o adaptador para atualizar a exibição.
      * Se não houver resultados válidos, notifica o adaptador que o conjunto de dados é inválido.
      */
     public Filter getFilter() {
         return new Filter() {
+            @Override
+            public void filter(CharSequence constraint, FilterListener listener) {
+                ultimaConsulta = constraint == null ? null : constraint.toString();
+                cancelarRequisicao();
+                super.filter(constraint, listener);
+            }
+
             @Override
             protected FilterResults performFiltering(CharSequence constraint) {
-                FilterResults results = new FilterResults();
-                if (constraint != null) { // Verifica se o texto de restrição não é nulo
-                    List<String> newPredictions = getAutocomplete(constraint.toString()); // Obtém previsões de autocompletar com base no texto de restrição
-                    results.values = newPredictions; // Define os resultados do filtro com as novas previsões
-                    results.count = newPredictions.size(); // Define o número de resultados
+                if (constraint == null) { // Verifica se o texto de restrição não é nulo
+                    return new FilterResults();
                 }
+                String query = constraint.toString();
+                List<String> newPredictions = cache.get(query);
+                if (newPredictions == null) {
+                    if (!aguardarDebounce(query)) {
+                        return null; // Outro texto foi digitado: este resultado seria descartado
+                    }
+                    newPredictions = getAutocomplete(query); // Obtém previsões de autocompletar com base no texto de restrição
+                    if (newPredictions == null) {
+                        return null;
+                    }
+                }
+                FilterResults results = new FilterResults();
+                results.values = newPredictions; // Define os resultados do filtro com as novas previsões
+                results.count = newPredictions.size(); // Define o número de resultados
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                if (results != null && results.count > 0) { // Verifica se há resultados válidos
+                if (results == null) {
+                    return; // Consulta descartada: mantém as previsões exibidas até o resultado do texto mais recente
+                }
+                if (results.count > 0) { // Verifica se há resultados válidos
                     predictions = (List<String>) results.values; // Atualiza a lista de previsões com os novos valores
                     notifyDataSetChanged(); // Notifica o adaptador para atualizar a exibição
                 } else {
@@ -96,34 +162,66 @@ public class PlacesAutoCompleteAdapter extends ArrayAdapter<String> implements F
     }
 
 
+    // Aguarda o intervalo de debounce; retorna false se um novo texto foi digitado durante a espera
+    private boolean aguardarDebounce(String query) {
+        try {
+            Thread.sleep(DEBOUNCE_MILLIS); // Executado na thread de filtragem, nunca na thread principal
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return query.equals(ultimaConsulta);
+    }
+
     /**
      * Obtém previsões de autocompletar para uma consulta de pesquisa fornecida.
-     * Cria uma nova lista para armazenar as previsões de autocompletar.
-     * Cria uma tarefa para buscar previsões de autocompletar com base na consulta de pesquisa fornecida.
-     * Tenta aguardar o resultado da tarefa por até 30 segundos.
-     * Se a resposta não for nula, itera sobre as previsões de autocompletar na resposta e as adiciona à lista de previsões.
+     * Cria uma tarefa para buscar previsões de autocompletar com base na consulta, usando o token da sessão atual
+     * e um token de cancelamento, acionado quando um novo texto é digitado.
+     * Aguarda o resultado da tarefa por até REQUEST_TIMEOUT_SECONDS segundos.
+     * Se a resposta não for nula, adiciona as previsões à lista e guarda a lista no cache.
      * Se ocorrer uma exceção durante a execução da tarefa, registra um erro no log e exibe um Toast informando sobre o erro.
-     * Retorna a lista de previsões de autocompletar.
+     *
+     * @return A lista de previsões de autocompletar, ou null se a requisição foi cancelada ou falhou.
      */
     private List<String> getAutocomplete(@NonNull String query) {
         List<String> predictionsList = new ArrayList<>(); // Cria uma nova lista para armazenar as previsões de autocompletar
-        Task<FindAutocompletePredictionsResponse> task = placesClient.findAutocompletePredictions(com.google.android.libraries.places.api.net.FindAutocompletePredictionsRequest.builder()
+        CancellationTokenSource requisicao = novaRequisicao();
+        if (!query.equals(ultimaConsulta)) {
+            return null; // O texto mudou antes de a requisição ser registrada
+        }
+        Task<FindAutocompletePredictionsResponse> task = placesClient.findAutocompletePredictions(FindAutocompletePredictionsRequest.builder()
                 .setQuery(query) // Define a consulta de pesquisa
+                .setSessionToken(sessionToken())
+                .setCancellationToken(requisicao.getToken())
                 .build());
 
         try {
-            FindAutocompletePredictionsResponse response = Tasks.await(task, 30, TimeUnit.SECONDS); // Tenta aguardar o resultado da tarefa por até 30 segundos
+            FindAutocompletePredictionsResponse response = Tasks.await(task, REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             if (response != null) { // Verifica se a resposta não é nula
                 for (AutocompletePrediction prediction : response.getAutocompletePredictions()) { // Itera sobre as previsões de autocompletar na resposta
                     predictionsList.add(prediction.getFullText(null).toString()); // Adiciona as previsões à lista de previsões
                 }
             }
+            cache.put(query, predictionsList);
+            return predictionsList; // Retorna a lista de previsões de autocompletar
+        } catch (CancellationException e) {
+            Log.d(TAG, "Requisição de autocompletar cancelada: " + query);
+            return null;
         } catch (ExecutionException | InterruptedException | TimeoutException e) { // Trata possíveis exceções
+            if (requisicao.getToken().isCancellationRequested()) {
+                Log.d(TAG, "Requisição de autocompletar cancelada: " + query);
+                return null;
+            }
             Log.e(TAG, "Error getting autocomplete prediction", e); // Registra um erro no log
-            Toast.makeText(getContext(), "Error getting autocomplete prediction API call", Toast.LENGTH_SHORT).show(); // Exibe um Toast informando sobre o erro
+            // O Toast precisa ser exibido na thread principal
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Toast.makeText(getContext(), "Error getting autocomplete prediction API call", Toast.LENGTH_SHORT).show(); // Exibe um Toast informando sobre o erro
+                }
+            });
+            return null;
         }
-
-        return predictionsList; // Retorna a lista de previsões de autocompletar
     }
 
 }
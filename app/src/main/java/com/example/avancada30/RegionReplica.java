@@ -0,0 +1,269 @@
+/**
+ * Réplica local, em memória, do nó "regioes" do Firebase.
+ *
+ * Em vez de baixar e descriptografar o nó inteiro a cada nova localização salva, a réplica registra uma única vez
+ * um ChildEventListener e aplica de forma incremental cada registro adicionado, alterado ou removido no servidor.
+ * As regiões ficam organizadas em uma RegionTree (com índice espacial), sobre a qual as verificações de proximidade
+ * são feitas localmente.
+ *
+ * Principais funcionalidades:
+ * - Registro e remoção dos ouvintes do Firebase (start/stop).
+ * - Descriptografia dos registros em uma thread própria, fora da thread principal.
+ * - Atualização de uma região principal alterada no mesmo nó da árvore, sem perder as suas sub-regiões.
+ * - Indicação de quando a carga inicial terminou (isReady), para que a consulta possa usar a réplica.
+ * - Cópia da árvore de regiões, ou apenas da região principal próxima e suas sub-regiões, para as consultas de proximidade.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionCodec;
+import com.example.biblioteca.RegionTree;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RegionReplica implements ChildEventListener {
+
+    private static final String TAG = "RegionReplica";
+
+    private final DatabaseReference regioesRef;
+    private final Map<String, Region> regionsByKey = new HashMap<>();
+    private final RegionTree tree = new RegionTree();
+    private ExecutorService decoder;
+    private volatile boolean ready = false;
+
+    public RegionReplica() {
+        this(FirebaseDatabase.getInstance().getReference().child("regioes"));
+    }
+
+    public RegionReplica(DatabaseReference regioesRef) {
+        this.regioesRef = regioesRef;
+    }
+
+    /**
+     * Registra os ouvintes no nó "regioes".
+     * O Firebase entrega todos os registros existentes por onChildAdded antes do evento de valor único,
+     * por isso a réplica é marcada como pronta quando esse evento é processado.
+     */
+    public synchronized void start() {
+        if (decoder != null) {
+            return;
+        }
+        decoder = Executors.newSingleThreadExecutor();
+        regioesRef.addChildEventListener(this);
+        regioesRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        ready = true;
+                        Log.d(TAG, "Carga inicial concluída: " + size() + " regiões");
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Erro na carga inicial da réplica: " + error.getMessage());
+            }
+        });
+    }
+
+    public synchronized void stop() {
+        if (decoder == null) {
+            return;
+        }
+        regioesRef.removeEventListener(this);
+        decoder.shutdownNow();
+        decoder = null;
+        ready = false;
+        synchronized (tree) {
+            regionsByKey.clear();
+            tree.clear();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        synchronized (tree) {
+            return tree.size();
+        }
+    }
+
+    /**
+     * Retorna uma cópia da árvore de regiões do servidor, que pode ser modificada livremente por quem a recebe.
+     */
+    public RegionTree copyTree() {
+        RegionTree copy = new RegionTree();
+        synchronized (tree) {
+            copy.addAll(tree);
+        }
+        return copy;
+    }
+
+    /**
+     * Retorna uma árvore com apenas a região principal mais próxima das coordenadas, dentro do raio, e as suas
+     * sub-regiões. O custo depende do número de sub-regiões, e não do tamanho da réplica.
+     *
+     * @return A árvore com a região encontrada, ou uma árvore vazia se nenhuma estiver dentro do raio.
+     */
+    public RegionTree copyNearby(double latitude, double longitude, double radiusMeters) {
+        synchronized (tree) {
+            return tree.copyNearby(latitude, longitude, radiusMeters);
+        }
+    }
+
+    @Override
+    public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        final String key = snapshot.getKey();
+        final String value = snapshot.getValue(String.class);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                put(key, value);
+            }
+        });
+    }
+
+    @Override
+    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        final String key = snapshot.getKey();
+        final String value = snapshot.getValue(String.class);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                update(key, value);
+            }
+        });
+    }
+
+    @Override
+    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+        final String key = snapshot.getKey();
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                remove(key);
+            }
+        });
+    }
+
+    @Override
+    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        // A ordem dos registros no servidor não altera a árvore de regiões
+    }
+
+    @Override
+    public void onCancelled(@NonNull DatabaseError error) {
+        Log.e(TAG, "Ouvinte da réplica cancelado: " + error.getMessage());
+        ready = false;
+    }
+
+    private synchronized void submit(Runnable task) {
+        if (decoder != null) {
+            decoder.execute(task);
+        }
+    }
+
+    private void put(String key, String encryptedJson) {
+        Region region = decode(key, encryptedJson);
+        if (region == null) {
+            return;
+        }
+        synchronized (tree) {
+            insert(key, region);
+        }
+    }
+
+    // Uma região principal alterada é substituída no mesmo nó, mantendo as sub-regiões já recebidas
+    private void update(String key, String encryptedJson) {
+        Region region = decode(key, encryptedJson);
+        if (region == null) {
+            remove(key);
+            return;
+        }
+        synchronized (tree) {
+            Region antiga = regionsByKey.get(key);
+            if (antiga != null && Region.mainRegionOf(antiga) == null && Region.mainRegionOf(region) == null) {
+                regionsByKey.put(key, region);
+                tree.replaceRegion(antiga, region);
+                return;
+            }
+            remove(key);
+            insert(key, region);
+        }
+    }
+
+    // Chamado com o lock da árvore
+    private void insert(String key, Region region) {
+        regionsByKey.put(key, region);
+        Region mainRegion = Region.mainRegionOf(region);
+        if (mainRegion == null) {
+            tree.addRegion(region);
+        } else {
+            tree.addChild(mainRegion, region);
+        }
+    }
+
+    // Descriptografa um registro; retorna null se ele for inválido
+    private Region decode(String key, String encryptedJson) {
+        Region region;
+        try {
+            region = JsonConverter.decryptRegionRecord(encryptedJson).toRegion(new RegionCodec.MainRegionResolver() {
+                @Override
+                public Region resolve(String storageKey) {
+                    synchronized (tree) {
+                        return regionsByKey.get(storageKey);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Registro inválido " + key + ": " + e.getMessage());
+            return null;
+        }
+        if (region != null) {
+            region.setStorageKey(key);
+        }
+        return region;
+    }
+
+    private void remove(String key) {
+        synchronized (tree) {
+            Region region = regionsByKey.remove(key);
+            if (region == null) {
+                return;
+            }
+            Region mainRegion = Region.mainRegionOf(region);
+            if (mainRegion == null) {
+                // Sub-regiões que ainda estão no servidor mantêm o nó da região principal
+                if (tree.getChildren(region).isEmpty()) {
+                    tree.removeRegion(region);
+                }
+            } else {
+                tree.removeChild(mainRegion, region);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Instância única, por processo, dos componentes de armazenamento de regiões: réplica local do nó "regioes",
+ * fila durável de escritas (PendingWriteQueue), FirebaseDataSaver e RegionStore, além do cache de nomes da
+ * geocodificação reversa (GeocodeCache).
+ *
+ * A fila durável é dona exclusiva do seu arquivo de log. Se cada Activity criasse a sua própria fila, uma rotação de
+ * tela abriria o mesmo arquivo uma segunda vez enquanto o armazenamento anterior ainda grava ou compacta o log, e a
+ * troca do arquivo compactado (.tmp) poderia descartar registros. Por isso os componentes sobrevivem às mudanças de
+ * configuração e são encerrados apenas quando a Activity é finalizada.
+ *
+ * Principais funcionalidades:
+ * - Abertura da fila (leitura do log) fora da thread principal; o RegionStore é entregue por um CompletableFuture.
+ * - Carga do GeocodeCache (leitura e ordenação das entradas persistidas) também fora da thread principal, uma única
+ *   vez para todas as Activities do processo.
+ * - Encerramento assíncrono: uma nova instância só abre o log depois que o encerramento da anterior terminou.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public final class RegionServices {
+    private static final String TAG = "RegionServices";
+    public static final String PENDING_WRITES_FILE = "regioes_pendentes.log";
+    public static final String GEOCODE_CACHE_PREFERENCES = "geocode_cache";
+
+    private static RegionServices instance;
+    // Encerramento da última instância; a próxima só abre o log depois dele
+    private static CompletableFuture<Void> encerramento = CompletableFuture.completedFuture(null);
+
+    private final RegionReplica regionReplica;
+    private final ExecutorService executorService; // Abertura da fila, carga do cache e decodificação dos snapshots
+    private final CompletableFuture<RegionStore> regionStore;
+    private final CompletableFuture<GeocodeCache> geocodeCache;
+
+    /**
+     * Retorna a instância do processo, criando-a se necessário. Deve ser chamado pela thread principal.
+     *
+     * @param context Qualquer Context; apenas o da aplicação é mantido.
+     */
+    public static synchronized RegionServices get(Context context) {
+        if (instance == null) {
+            instance = new RegionServices(context.getApplicationContext(), encerramento);
+        }
+        return instance;
+    }
+
+    /**
+     * Encerra a instância do processo, se houver. O RegionStore grava as regiões pendentes na fila durável e o envio
+     * ao Firebase é encerrado em segundo plano; a próxima chamada a get() aguarda esse encerramento.
+     *
+     * @return Um future concluído depois que o log da fila foi fechado.
+     */
+    public static synchronized CompletableFuture<Void> shutdown() {
+        if (instance == null) {
+            return encerramento;
+        }
+        final RegionServices servicos = instance;
+        instance = null;
+        servicos.regionReplica.stop();
+        encerramento = servicos.regionStore.handle(new BiFunction<RegionStore, Throwable, RegionStore>() {
+            @Override
+            public RegionStore apply(RegionStore store, Throwable error) {
+                return store; // Sem armazenamento aberto, não há o que encerrar
+            }
+        }).thenCompose(new Function<RegionStore, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(RegionStore store) {
+                return store == null ? CompletableFuture.<Void>completedFuture(null) : store.shutdown();
+            }
+        }).whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void ignorado, Throwable error) {
+                servicos.executorService.shutdown();
+                Log.d(TAG, "Armazenamento de regiões encerrado");
+            }
+        });
+        return encerramento;
+    }
+
+    private RegionServices(final Context context, CompletableFuture<Void> anterior) {
+        // Manter uma réplica local do nó "regioes" para as consultas de proximidade
+        regionReplica = new RegionReplica();
+        regionReplica.start();
+        executorService = Executors.newFixedThreadPool(2);
+        regionStore = anterior.thenApplyAsync(new Function<Void, RegionStore>() {
+            @Override
+            public RegionStore apply(Void ignorado) {
+                return abrir(context);
+            }
+        }, executorService);
+        // Não depende do encerramento anterior: o cache não é fechado e só grava entradas independentes
+        geocodeCache = CompletableFuture.supplyAsync(new Supplier<GeocodeCache>() {
+            @Override
+            public GeocodeCache get() {
+                return new GeocodeCache(GeocodeCache.DEFAULT_CELL_SIZE_METERS, GeocodeCache.DEFAULT_TTL_MILLIS,
+                        GeocodeCache.DEFAULT_MAX_ENTRIES,
+                        context.getSharedPreferences(GEOCODE_CACHE_PREFERENCES, Context.MODE_PRIVATE));
+            }
+        }, executorService);
+    }
+
+    /**
+     * Retorna o armazenamento de regiões, disponível depois que a fila durável foi carregada do disco.
+     */
+    public CompletableFuture<RegionStore> regionStore() {
+        return regionStore;
+    }
+
+    /**
+     * Retorna o cache de nomes da geocodificação reversa, disponível depois que as entradas persistidas foram lidas.
+     */
+    public CompletableFuture<GeocodeCache> geocodeCache() {
+        return geocodeCache;
+    }
+
+    // Executado fora da thread principal: a leitura do log pode ser demorada
+    private RegionStore abrir(Context context) {
+        // As escritas passam por uma fila em disco e só saem dela após a confirmação do servidor
+        PendingWriteQueue pendingWrites = new PendingWriteQueue(new File(context.getFilesDir(), PENDING_WRITES_FILE));
+        // Armazenamento das regiões locais, com uma única thread dona da árvore de regiões
+        RegionStore store = new RegionStore(new ConsultDatabase(regionReplica, executorService), new FirebaseDataSaver(pendingWrites));
+        // Além do botão, as regiões são salvas a cada 20 pendentes ou 5 minutos após a primeira delas
+        store.setFlushPolicy(RegionStore.DEFAULT_FLUSH_MAX_PENDING, RegionStore.DEFAULT_FLUSH_MAX_DELAY_MILLIS);
+        return store;
+    }
+}
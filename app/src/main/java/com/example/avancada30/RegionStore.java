@@ -0,0 +1,432 @@
+/**
+ * Armazenamento das regiões locais ainda não confirmadas pelo servidor, com um único escritor.
+ *
+ * A árvore de regiões pertence a uma única thread: todas as operações (adicionar localização, salvar e consultar)
+ * são comandos enfileirados em uma fila limitada e executados em ordem por essa thread, e cada comando devolve um
+ * CompletableFuture com o seu resultado. Não há bloqueios nem criação de threads por operação.
+ *
+ * Principais funcionalidades:
+ * - Adição de uma nova localização: consulta as regiões do servidor (ConsultDatabase) e decide, na thread do
+ *   armazenamento e pelo RegionPlacementEngine, se a localização vira uma Region, uma SubRegion, uma
+ *   RestrictedRegion ou se é rejeitada.
+ * - Adição de um lote de localizações sobre um único snapshot do servidor, seguida de uma única gravação.
+ * - Salvamento no Firebase (FirebaseDataSaver) apenas das regiões criadas desde o último salvamento, sob demanda
+ *   ("flush now") ou pela política de salvamento: quando N regiões estão pendentes ou quando a mais antiga delas
+ *   espera há T milissegundos.
+ *   Sem regiões pendentes não há nenhum temporizador ativo.
+ * - As regiões salvas continuam na árvore local até a confirmação do servidor, para que as decisões de
+ *   posicionamento as considerem enquanto ainda estão na fila de envio. As regiões do servidor não são copiadas
+ *   para a árvore local.
+ * - Consultas somente leitura sobre a árvore de regiões, executadas na thread do armazenamento.
+ * - Rejeição imediata de comandos quando a fila está cheia, em vez de criar threads sem limite.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.util.Log;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionKind;
+import com.example.biblioteca.RegionPlacementEngine;
+import com.example.biblioteca.RegionTree;
+import com.example.biblioteca.RestrictedRegion;
+import com.example.biblioteca.SubRegion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class RegionStore {
+
+    /**
+     * Uma localização a ser adicionada em lote: o nome da região e as coordenadas.
+     */
+    public static final class LocationPoint {
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+
+        public LocationPoint(String name, double latitude, double longitude) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    private static final String TAG = "RegionStore";
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_FLUSH_MAX_PENDING = 20;
+    public static final long DEFAULT_FLUSH_MAX_DELAY_MILLIS = 5 * 60 * 1000; // 5 minutos
+
+    // Regiões locais ainda não confirmadas pelo servidor; acessada somente pela thread do armazenamento
+    private final RegionTree regions = new RegionTree();
+    // Regiões criadas desde o último salvamento; as demais regiões da árvore já estão no servidor
+    private final Set<Region> alteradas = Collections.newSetFromMap(new IdentityHashMap<Region, Boolean>());
+    // Regiões salvas que aguardam a confirmação do servidor, pela chave; acessado somente pela thread do armazenamento
+    private final Map<String, Region> aguardandoConfirmacao = new HashMap<>();
+    // Chaves confirmadas pelo servidor, preenchida pela thread de envio e esvaziada pela thread do armazenamento
+    private final Queue<String> confirmadas = new ConcurrentLinkedQueue<>();
+    private final ConsultDatabase consultDatabase;
+    private final FirebaseDataSaver firebaseDataSaver;
+    private final ThreadPoolExecutor executor;
+    private final RegionPlacementEngine placementEngine = new RegionPlacementEngine();
+    private final Random random = new Random();
+    private volatile ScheduledExecutorService flushScheduler; // Temporizador da política de salvamento
+    private volatile int flushMaxPending = 0; // 0 desativa o salvamento por quantidade
+    private volatile long flushMaxDelayMillis = 0; // 0 desativa o salvamento por tempo
+    // Acessado somente pela thread do armazenamento
+    private ScheduledFuture<?> flushAgendado;
+    private CompletableFuture<Void> encerramento; // Não nulo depois de shutdown(); acessado sob o monitor do armazenamento
+
+    public RegionStore(ConsultDatabase consultDatabase, FirebaseDataSaver firebaseDataSaver) {
+        this(consultDatabase, firebaseDataSaver, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public RegionStore(ConsultDatabase consultDatabase, FirebaseDataSaver firebaseDataSaver, int queueCapacity) {
+        this.consultDatabase = consultDatabase;
+        this.firebaseDataSaver = firebaseDataSaver;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, TAG);
+                    }
+                });
+        firebaseDataSaver.setConfirmationListener(new FirebaseDataSaver.ConfirmationListener() {
+            @Override
+            public void onWritesConfirmed(Set<String> chaves) {
+                // As regiões confirmadas saem da árvore no próximo comando, na thread do armazenamento
+                confirmadas.addAll(chaves);
+            }
+        });
+    }
+
+    /**
+     * Adiciona uma nova localização.
+     * As regiões do servidor são consultadas fora da thread do armazenamento; a decisão e a alteração da árvore
+     * são feitas como um comando, depois de todos os comandos já enfileirados.
+     *
+     * @param name      O nome da região.
+     * @param latitude  A latitude da nova localização.
+     * @param longitude A longitude da nova localização.
+     * @return Um future com a região adicionada, ou com null se a localização foi rejeitada por estar a menos de
+     * 5 metros de uma sub-região existente.
+     */
+    public CompletableFuture<Region> addLocation(final String name, final double latitude, final double longitude) {
+        return consultDatabase.consultar(latitude, longitude).thenCompose(new Function<RegionTree, CompletableFuture<Region>>() {
+            @Override
+            public CompletableFuture<Region> apply(final RegionTree arvoreBD) {
+                return submit(new Callable<Region>() {
+                    @Override
+                    public Region call() {
+                        descartarConfirmadas();
+                        Region region = avaliaDados(arvoreBD, name, latitude, longitude);
+                        if (region != null) {
+                            alteradas.add(region);
+                            aplicarPoliticaDeSalvamento();
+                        }
+                        return region;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Adiciona um lote de localizações (por exemplo, uma trilha de GPS importada) com uma única consulta ao servidor.
+     * Todas as localizações são posicionadas, em ordem, em um único comando sobre o mesmo snapshot das regiões do
+     * servidor; cada localização já vê as regiões criadas pelas anteriores do lote. Ao final, as regiões pendentes
+     * são salvas em uma única gravação.
+     *
+     * @param pontos As localizações, na ordem em que devem ser posicionadas.
+     * @return Um future com as regiões criadas, na ordem dos pontos, com null para cada localização rejeitada.
+     */
+    public CompletableFuture<List<Region>> addLocations(final List<LocationPoint> pontos) {
+        return consultDatabase.consultarTodas().thenCompose(new Function<RegionTree, CompletableFuture<List<Region>>>() {
+            @Override
+            public CompletableFuture<List<Region>> apply(final RegionTree snapshot) {
+                return submit(new Callable<List<Region>>() {
+                    @Override
+                    public List<Region> call() {
+                        descartarConfirmadas();
+                        List<Region> criadas = new ArrayList<>(pontos.size());
+                        for (LocationPoint ponto : pontos) {
+                            // Só a parte do snapshot próxima do ponto participa da decisão
+                            RegionTree arvoreBD = snapshot.copyNearby(ponto.getLatitude(), ponto.getLongitude(),
+                                    placementEngine.getMainRadiusMeters());
+                            Region region = avaliaDados(arvoreBD, ponto.getName(), ponto.getLatitude(), ponto.getLongitude());
+                            if (region != null) {
+                                alteradas.add(region);
+                            }
+                            criadas.add(region);
+                        }
+                        Log.d(TAG, "Lote de " + pontos.size() + " localizações: " + alteradas.size() + " regiões pendentes");
+                        salvar();
+                        return criadas;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Grava as regiões pendentes na fila durável do FirebaseDataSaver, que as envia ao Firebase em segundo plano.
+     * As regiões gravadas saem da árvore local depois da confirmação do servidor.
+     *
+     * @return Um future com o número de regiões gravadas na fila.
+     */
+    public CompletableFuture<Integer> flush() {
+        return submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return salvar();
+            }
+        });
+    }
+
+    /**
+     * Executa uma consulta somente leitura sobre a árvore de regiões locais (as ainda não salvas e as salvas ainda
+     * não confirmadas pelo servidor), na thread do armazenamento.
+     * A árvore não deve ser guardada nem alterada pela consulta.
+     */
+    public <T> CompletableFuture<T> query(final Function<RegionTree, T> consulta) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return consulta.apply(regions);
+            }
+        });
+    }
+
+    /**
+     * Define a política de salvamento automático: as regiões pendentes são salvas assim que maxPending regiões forem
+     * adicionadas desde o último salvamento, ou maxDelayMillis depois da primeira delas, o que ocorrer primeiro.
+     * Com 0 em ambos, os salvamentos passam a ser feitos apenas por flush().
+     *
+     * @param maxPending    O número de regiões pendentes que dispara o salvamento; 0 desativa este critério.
+     * @param maxDelayMillis O tempo máximo de espera da primeira região pendente; 0 desativa este critério.
+     * @throws IllegalStateException Se o armazenamento já foi encerrado.
+     */
+    public synchronized void setFlushPolicy(int maxPending, long maxDelayMillis) {
+        if (maxPending < 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Parâmetros da política de salvamento não podem ser negativos");
+        }
+        if (encerramento != null) {
+            // O temporizador criado agora não seria mais encerrado por ninguém
+            throw new IllegalStateException("Armazenamento encerrado");
+        }
+        if (maxDelayMillis > 0 && flushScheduler == null) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, TAG + "-flush");
+                }
+            });
+        }
+        this.flushMaxPending = maxPending;
+        this.flushMaxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Encerra o armazenamento. Os comandos já enfileirados ainda são executados e, por último, as regiões pendentes
+     * são gravadas na fila durável; em seguida, o envio ao Firebase é encerrado, e as escritas não confirmadas ficam
+     * na fila para a próxima execução.
+     *
+     * @return Um future concluído depois que o envio foi encerrado e o log da fila durável foi fechado.
+     */
+    public synchronized CompletableFuture<Void> shutdown() {
+        if (encerramento != null) {
+            return encerramento;
+        }
+        encerramento = new CompletableFuture<>();
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+            flushScheduler = null;
+        }
+        Runnable encerrarEnvio = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    salvar();
+                } finally {
+                    firebaseDataSaver.shutdown();
+                    encerramento.complete(null);
+                }
+            }
+        };
+        try {
+            executor.execute(encerrarEnvio);
+        } catch (RejectedExecutionException e) {
+            // Fila cheia: a árvore ainda pertence à thread do armazenamento, então apenas o envio é encerrado
+            Log.e(TAG, "Não foi possível salvar as regiões pendentes no encerramento");
+            firebaseDataSaver.shutdown();
+            encerramento.complete(null);
+        }
+        executor.shutdown();
+        return encerramento;
+    }
+
+    // Salva as regiões pendentes; executado somente pela thread do armazenamento
+    private int salvar() {
+        if (flushAgendado != null) {
+            flushAgendado.cancel(false);
+            flushAgendado = null;
+        }
+        if (alteradas.isEmpty()) {
+            return 0;
+        }
+        int enviados = firebaseDataSaver.saveData(regions, alteradas);
+        for (Region region : alteradas) {
+            String chave = region.storageKey();
+            aguardandoConfirmacao.put(chave, region);
+            if (!firebaseDataSaver.isPending(chave)) {
+                confirmadas.add(chave); // Não foi para a fila (falha na conversão) ou já foi confirmada
+            }
+        }
+        alteradas.clear();
+        descartarConfirmadas();
+        return enviados;
+    }
+
+    // Remove da árvore local as regiões confirmadas desde o último comando, que passam a vir do ConsultDatabase.
+    // Só as regiões com confirmação recebida são visitadas, sem percorrer a árvore.
+    private void descartarConfirmadas() {
+        String chave;
+        while ((chave = confirmadas.poll()) != null) {
+            Region region = aguardandoConfirmacao.remove(chave);
+            if (region == null) {
+                continue; // Escrita de uma execução anterior
+            }
+            if (region.kind() == RegionKind.REGION) {
+                descartarPrincipal(region);
+            } else {
+                Region mainRegion = Region.mainRegionOf(region);
+                regions.removeChild(mainRegion, region);
+                descartarPrincipal(mainRegion);
+            }
+        }
+    }
+
+    // Uma região principal só sai da árvore junto com a última de suas sub-regiões e depois da sua própria confirmação.
+    // As principais vindas do servidor nunca aguardam confirmação.
+    private void descartarPrincipal(Region mainRegion) {
+        if (regions.getChildren(mainRegion).isEmpty() && !alteradas.contains(mainRegion)
+                && !aguardandoConfirmacao.containsKey(mainRegion.storageKey())) {
+            regions.removeRegion(mainRegion);
+        }
+    }
+
+    // Salva imediatamente ao atingir flushMaxPending; caso contrário, arma o temporizador se ele ainda não estiver armado
+    private void aplicarPoliticaDeSalvamento() {
+        int maxPending = flushMaxPending;
+        long maxDelayMillis = flushMaxDelayMillis;
+        if (maxPending > 0 && alteradas.size() >= maxPending) {
+            Log.d(TAG, alteradas.size() + " regiões pendentes: salvando");
+            salvar();
+            return;
+        }
+        ScheduledExecutorService scheduler = flushScheduler;
+        if (maxDelayMillis > 0 && scheduler != null && (flushAgendado == null || flushAgendado.isDone())) {
+            try {
+                flushAgendado = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, maxDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Armazenamento encerrado: as regiões são salvas pelo shutdown
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(final Callable<T> comando) {
+        final CompletableFuture<T> resultado = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        resultado.complete(comando.call());
+                    } catch (Throwable t) {
+                        resultado.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Fila de comandos cheia ou armazenamento encerrado");
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    /**
+     * Decide, pelo RegionPlacementEngine, como a nova localização entra na árvore de regiões e aplica a decisão:
+     * cria a Region, SubRegion ou RestrictedRegion e a insere na árvore local. A decisão é tomada diretamente sobre
+     * as regiões do servidor, que não são copiadas para a árvore local; de uma sub-região criada sob uma região
+     * principal do servidor, apenas essa região principal entra na árvore, para dar a chave da sub-região.
+     *
+     * @return A região criada, ou null se a localização foi rejeitada.
+     */
+    private Region avaliaDados(RegionTree arvoreBD, String name, double latitude, double longitude) {
+        RegionPlacementEngine.Decision decisao = placementEngine.decide(arvoreBD, regions, latitude, longitude);
+        Region regiaoPrincipal = decisao.mainRegion();
+        Region region;
+        switch (decisao.type()) {
+            case NEW_REGION:
+                Log.d("Consulta Lista", "Nenhuma região está a menos de 30 metros de distância do novo dado");
+                region = new Region(name, latitude, longitude, System.nanoTime(), Math.abs(random.nextInt()));
+                regions.addRegion(region);
+                break;
+            case RESTRICTED_REGION:
+                Log.d("Consulta Lista", "Adicionando RestrictedRegion");
+                region = new RestrictedRegion(name, latitude, longitude, Math.abs(random.nextInt()), System.nanoTime(), true, regiaoPrincipal);
+                regions.addChild(regiaoPrincipal, region);
+                break;
+            case SUB_REGION:
+                Log.d("Consulta Lista", "Adicionando SubRegion");
+                region = new SubRegion(name, latitude, longitude, Math.abs(random.nextInt()), System.nanoTime(), regiaoPrincipal);
+                regions.addChild(regiaoPrincipal, region);
+                break;
+            default:
+                Log.d("Consulta Lista", "Nova região não pode ser inserida (Distância menor que 5 metros detectada)");
+                return null;
+        }
+        Log.d("Consulta Lista", "Região adicionada: " + region.getName() + " (" + region.kind() + ")");
+        return region;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Obtém o nome da região (endereço completo) a partir das coordenadas, sem bloquear a thread que faz a chamada.
+ *
+ * A consulta ao Geocoder do Android é bloqueante e depende da rede; por isso é executada em um executor de segundo
+ * plano e o resultado é entregue por um CompletableFuture. Em caso de falha de E/S, uma nova tentativa é agendada
+ * após um intervalo, sem manter uma thread parada durante a espera.
+ *
+ * Principais funcionalidades:
+ * - Consulta reversa assíncrona de coordenadas.
+ * - Montagem do endereço completo a partir das linhas do endereço.
+ * - Uma nova tentativa agendada em caso de falha de E/S.
+ * - Cache opcional (GeocodeCache) dos nomes já obtidos, consultado antes do Geocoder.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ReverseGeocoder {
+    private static final String TAG = "ReverseGeocoder";
+    public static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
+    private final Geocoder geocoder;
+    private final ScheduledExecutorService executor;
+    private final GeocodeCache cache;
+    private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+
+    /**
+     * @param context  O contexto usado pelo Geocoder.
+     * @param executor O executor em que as consultas e a nova tentativa são executadas.
+     */
+    public ReverseGeocoder(Context context, ScheduledExecutorService executor) {
+        this(context, executor, null);
+    }
+
+    /**
+     * @param cache O cache de nomes consultado antes do Geocoder; pode ser null.
+     */
+    public ReverseGeocoder(Context context, ScheduledExecutorService executor, GeocodeCache cache) {
+        this.geocoder = new Geocoder(context, Locale.getDefault());
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    /**
+     * Obtém o nome da região correspondente às coordenadas.
+     *
+     * @param latitude  A latitude das coordenadas.
+     * @param longitude A longitude das coordenadas.
+     * @return Um future com o endereço completo, ou com uma string vazia se ele não puder ser obtido.
+     */
+    public CompletableFuture<String> resolve(final double latitude, final double longitude) {
+        if (cache != null) {
+            String nome = cache.get(latitude, longitude);
+            if (nome != null) {
+                return CompletableFuture.completedFuture(nome);
+            }
+        }
+        final CompletableFuture<String> resultado = new CompletableFuture<>();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resultado.complete(consultar(latitude, longitude));
+                } catch (IOException e) {
+                    // Lidar com exceções de E/S, como falha na conexão de rede
+                    Log.e(TAG, "Erro na primeira tentativa de obter o endereço completo a partir das coordenadas: " + e.getMessage());
+                    agendarNovaTentativa(latitude, longitude, resultado);
+                } catch (Exception e) {
+                    Log.e(TAG, "Erro ao obter o endereço completo a partir das coordenadas: " + e.getMessage());
+                    resultado.complete("");
+                }
+            }
+        });
+        return resultado;
+    }
+
+    private void agendarNovaTentativa(final double latitude, final double longitude, final CompletableFuture<String> resultado) {
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resultado.complete(consultar(latitude, longitude));
+                } catch (Exception e) {
+                    Log.e(TAG, "Erro na segunda tentativa de obter o endereço completo: " + e.getMessage());
+                    resultado.complete("");
+                }
+            }
+        }, retryDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Consulta bloqueante ao Geocoder; deve ser chamada apenas pelo executor
+    private String consultar(double latitude, double longitude) throws IOException {
+        String nome = consultarGeocoder(latitude, longitude);
+        if (cache != null) {
+            cache.put(latitude, longitude, nome);
+        }
+        return nome;
+    }
+
+    private String consultarGeocoder(double latitude, double longitude) throws IOException {
+        List<Address> addresses = geocoder.getFromLocation(latitude, longitude, 1);
+        if (addresses == null || addresses.isEmpty()) {
+            return "";
+        }
+        Address address = addresses.get(0);
+
+        StringBuilder stringBuilder = new StringBuilder();
+        // Construir o endereço completo a partir das linhas do endereço
+        for (int i = 0; i <= address.getMaxAddressLineIndex(); i++) {
+            stringBuilder.append(address.getAddressLine(i));
+            // Adicionar vírgula entre as linhas do endereço, exceto para a última linha
+            if (i < address.getMaxAddressLineIndex()) {
+                stringBuilder.append(", ");
+            }
+        }
+
+        // Remover espaços em branco extras e definir como o nome da região
+        return stringBuilder.toString().trim();
+    }
+}
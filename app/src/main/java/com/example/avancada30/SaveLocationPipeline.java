@@ -0,0 +1,109 @@
+/**
+ * Encadeia as etapas de salvamento de uma localização sem bloquear a thread principal:
+ * geocodificação reversa → consulta das regiões do servidor → atualização da árvore local → salvamento opcional.
+ *
+ * Cada etapa é executada no seu próprio executor de segundo plano (ReverseGeocoder, ConsultDatabase e RegionStore),
+ * e o resultado final é entregue ao Callback no executor informado, normalmente a thread principal.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.avancada30;
+
+import com.example.biblioteca.Region;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class SaveLocationPipeline {
+
+    /**
+     * Resultado do salvamento de uma localização. Os métodos são chamados no executor de callback.
+     */
+    public interface Callback {
+        void onRegionAdded(Region region);
+        void onRegionRejected();
+        void onNameUnavailable();
+        void onError(Throwable error);
+    }
+
+    /**
+     * Indica que o nome da região não pôde ser obtido para as coordenadas.
+     */
+    public static class NameUnavailableException extends RuntimeException {
+        public NameUnavailableException(double latitude, double longitude) {
+            super("Nome da região não disponível para " + latitude + ", " + longitude);
+        }
+    }
+
+    private final ReverseGeocoder geocoder;
+    private final RegionStore regionStore;
+    private final Executor callbackExecutor;
+
+    public SaveLocationPipeline(ReverseGeocoder geocoder, RegionStore regionStore, Executor callbackExecutor) {
+        this.geocoder = geocoder;
+        this.regionStore = regionStore;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Salva uma localização.
+     *
+     * @param latitude  A latitude da localização.
+     * @param longitude A longitude da localização.
+     * @param flush     Se true, as regiões pendentes são enviadas ao Firebase depois que a localização é adicionada.
+     * @return Um future com a região adicionada, ou com null se ela foi rejeitada.
+     */
+    public CompletableFuture<Region> save(final double latitude, final double longitude, final boolean flush) {
+        return geocoder.resolve(latitude, longitude).thenCompose(new Function<String, CompletableFuture<Region>>() {
+            @Override
+            public CompletableFuture<Region> apply(String name) {
+                if (name == null || name.isEmpty()) {
+                    throw new NameUnavailableException(latitude, longitude);
+                }
+                return regionStore.addLocation(name, latitude, longitude);
+            }
+        }).thenCompose(new Function<Region, CompletableFuture<Region>>() {
+            @Override
+            public CompletableFuture<Region> apply(final Region region) {
+                if (!flush || region == null) {
+                    return CompletableFuture.completedFuture(region);
+                }
+                return regionStore.flush().thenApply(new Function<Integer, Region>() {
+                    @Override
+                    public Region apply(Integer enviados) {
+                        return region;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Salva uma localização e entrega o resultado ao callback, no executor de callback.
+     *
+     * @return Um future concluído depois que o callback é chamado.
+     */
+    public CompletableFuture<Region> save(final double latitude, final double longitude, final boolean flush, final Callback callback) {
+        return save(latitude, longitude, flush).whenCompleteAsync(new BiConsumer<Region, Throwable>() {
+            @Override
+            public void accept(Region region, Throwable error) {
+                Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (causa instanceof NameUnavailableException) {
+                    callback.onNameUnavailable();
+                } else if (causa != null) {
+                    callback.onError(causa);
+                } else if (region == null) {
+                    callback.onRegionRejected();
+                } else {
+                    callback.onRegionAdded(region);
+                }
+            }
+        }, callbackExecutor);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.avancada30;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes do AutocompleteCache, em especial do uso das previsões de um prefixo para consultas mais longas.
+ */
+public class AutocompleteCacheTest {
+
+    @Test
+    public void get_returnsExactQueryIgnoringCaseAndSpaces() {
+        AutocompleteCache cache = new AutocompleteCache();
+        List<String> resultado = Arrays.asList("Belo Horizonte, MG", "Belém, PA");
+        cache.put("Bel", resultado);
+
+        assertEquals(resultado, cache.get("  bEL "));
+    }
+
+    @Test
+    public void get_filtersCompletePrefixResult() {
+        AutocompleteCache cache = new AutocompleteCache();
+        cache.put("bel", Arrays.asList("Belo Horizonte, MG", "Belém, PA", "Bela Vista, SP"));
+
+        assertEquals(Collections.singletonList("Belo Horizonte, MG"), cache.get("belo h"));
+    }
+
+    @Test
+    public void get_doesNotReuseTruncatedPrefixResult() {
+        AutocompleteCache cache = new AutocompleteCache();
+        // Cinco previsões: o limite da Places API, então pode haver outras que não vieram
+        cache.put("b", Arrays.asList("Bahia", "Belo Horizonte, MG", "Brasília, DF", "Belém, PA", "Boa Vista, RR"));
+
+        assertNull(cache.get("be"));
+        assertNull(cache.get("belo"));
+    }
+
+    @Test
+    public void get_fallsBackToShorterCompletePrefix() {
+        AutocompleteCache cache = new AutocompleteCache(64, 3);
+        cache.put("sa", Arrays.asList("Salvador, BA", "São Paulo, SP"));
+        cache.put("sal", Arrays.asList("Salvador, BA", "Salto, SP", "Salinas, MG")); // Truncado
+
+        // "sal" está no limite; "sa" estava completo e ainda responde
+        assertEquals(Collections.singletonList("Salvador, BA"), cache.get("salv"));
+    }
+
+    @Test
+    public void get_withoutMatchingPredictionsReturnsNull() {
+        AutocompleteCache cache = new AutocompleteCache();
+        cache.put("rio", Arrays.asList("Rio de Janeiro, RJ"));
+
+        assertNull(cache.get("rio g"));
+        assertNull(cache.get("porto"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        AutocompleteCache cache = new AutocompleteCache(2, 5);
+        cache.put("a", Collections.singletonList("A"));
+        cache.put("b", Collections.singletonList("B"));
+        cache.get("a");
+        cache.put("c", Collections.singletonList("C"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.avancada30;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes do LocationFilter, em especial da distinção entre as medições usadas pelo filtro de Kalman e as aceitas
+ * pela distância mínima.
+ */
+public class LocationFilterTest {
+    private static final double LATITUDE = -19.9167;
+    private static final double LONGITUDE = -43.9345;
+
+    @Test
+    public void accept_stationaryFixesAreUsedButNotAccepted() {
+        LocationFilter filter = new LocationFilter();
+
+        assertTrue(filter.accept(LATITUDE, LONGITUDE, 5, 0));
+        assertTrue(filter.isLastMeasurementUsed());
+
+        // Usuário parado: as medições seguintes não se movem os 3 metros exigidos
+        for (int i = 1; i <= 10; i++) {
+            assertFalse(filter.accept(LATITUDE, LONGITUDE, 5, i * 15000L));
+            assertTrue(filter.isLastMeasurementUsed());
+        }
+    }
+
+    @Test
+    public void accept_inaccurateFixIsNotUsed() {
+        LocationFilter filter = new LocationFilter();
+        assertTrue(filter.accept(LATITUDE, LONGITUDE, 5, 0));
+
+        assertFalse(filter.accept(LATITUDE + 0.001, LONGITUDE, LocationFilter.DEFAULT_MAX_ACCURACY_METERS + 1, 1000));
+        assertFalse(filter.isLastMeasurementUsed());
+        assertEquals(LATITUDE, filter.getLatitude(), 0);
+    }
+
+    @Test
+    public void accept_movementBeyondMinDistanceIsAccepted() {
+        LocationFilter filter = new LocationFilter();
+        assertTrue(filter.accept(LATITUDE, LONGITUDE, 1, 0));
+
+        // Cerca de 110 metros ao norte, com boa precisão
+        assertTrue(filter.accept(LATITUDE + 0.001, LONGITUDE, 1, 60000));
+        assertTrue(filter.isLastMeasurementUsed());
+    }
+
+    @Test
+    public void reset_clearsLastMeasurement() {
+        LocationFilter filter = new LocationFilter();
+        filter.accept(LATITUDE, LONGITUDE, 5, 0);
+        filter.reset();
+
+        assertFalse(filter.isLastMeasurementUsed());
+        assertTrue(filter.accept(LATITUDE, LONGITUDE, 5, 1000));
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.avancada30;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes da PendingWriteQueue sobre um arquivo de log em diretório temporário: recarga dos registros PUT e ACK,
+ * descarte de registros incompletos ou corrompidos, recuperação de gravações interrompidas e compactação pelo
+ * arquivo .tmp.
+ */
+public class PendingWriteQueueTest {
+
+    @Rule
+    public TemporaryFolder pasta = new TemporaryFolder();
+
+    // Quando falharGravacao está ligado, a próxima gravação no log é interrompida na metade
+    private boolean falharGravacao = false;
+
+    private File log() {
+        return new File(pasta.getRoot(), "regioes_pendentes.log");
+    }
+
+    private static Map<String, String> escritas(String... chavesEValores) {
+        Map<String, String> escritas = new LinkedHashMap<>();
+        for (int i = 0; i < chavesEValores.length; i += 2) {
+            escritas.put(chavesEValores[i], chavesEValores[i + 1]);
+        }
+        return escritas;
+    }
+
+    // Tamanho no arquivo de um registro PUT com chave e valor em ASCII: tamanho, operação, chave, valor e CRC32
+    private static long tamanhoPut(String chave, String valor) {
+        return 4 + 1 + 4 + chave.length() + 4 + valor.length() + 8;
+    }
+
+    @Test
+    public void reload_replaysPutsInOrder() {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1", "b", "2"));
+        fila.enqueue(escritas("c", "3"));
+        fila.close();
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        assertEquals(escritas("a", "1", "b", "2", "c", "3"), recarregada.peek(10));
+        assertEquals(escritas("a", "1"), recarregada.peek(1));
+        recarregada.close();
+    }
+
+    @Test
+    public void reload_replaysAcksAndReplacements() {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1", "b", "2", "c", "3"));
+        fila.acknowledge(escritas("a", "1"));
+        // Uma escrita substituída depois do envio continua pendente com o novo valor
+        Map<String, String> enviado = fila.peek(1);
+        fila.enqueue(escritas("b", "2b"));
+        fila.acknowledge(escritas("b", "2"));
+        fila.acknowledge(enviado);
+        fila.close();
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        assertEquals(escritas("b", "2b", "c", "3"), recarregada.peek(10));
+        assertTrue(recarregada.contains("b"));
+        assertFalse(recarregada.contains("a"));
+        recarregada.close();
+    }
+
+    @Test
+    public void reload_truncatesTornTail() throws IOException {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1"));
+        fila.enqueue(escritas("b", "2"));
+        fila.close();
+        long valido = tamanhoPut("a", "1");
+        assertEquals(valido + tamanhoPut("b", "2"), log().length());
+
+        // Queda durante a gravação: o último registro fica pela metade
+        try (RandomAccessFile arquivo = new RandomAccessFile(log(), "rw")) {
+            arquivo.setLength(valido + 7);
+        }
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        assertEquals(escritas("a", "1"), recarregada.peek(10));
+        assertEquals(valido, log().length());
+
+        // As novas escritas continuam depois do último registro válido
+        recarregada.enqueue(escritas("c", "3"));
+        recarregada.close();
+        assertEquals(escritas("a", "1", "c", "3"), new PendingWriteQueue(log()).peek(10));
+    }
+
+    @Test
+    public void reload_stopsAtCrcMismatch() throws IOException {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1", "b", "2", "c", "3"));
+        fila.close();
+        long valido = tamanhoPut("a", "1");
+
+        // Altera o valor do segundo registro sem atualizar o CRC32
+        try (RandomAccessFile arquivo = new RandomAccessFile(log(), "rw")) {
+            long posicaoValor = valido + tamanhoPut("b", "2") - 8 - 1;
+            arquivo.seek(posicaoValor);
+            assertEquals('2', arquivo.read());
+            arquivo.seek(posicaoValor);
+            arquivo.write('X');
+        }
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        // O log é descartado a partir do primeiro registro inválido
+        assertEquals(escritas("a", "1"), recarregada.peek(10));
+        assertEquals(valido, log().length());
+        recarregada.close();
+    }
+
+    @Test
+    public void reload_stopsAtInvalidRecordSize() throws IOException {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1"));
+        fila.close();
+        try (FileOutputStream saida = new FileOutputStream(log(), true)) {
+            saida.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1, 2, 3});
+        }
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        assertEquals(escritas("a", "1"), recarregada.peek(10));
+        assertEquals(tamanhoPut("a", "1"), log().length());
+        recarregada.close();
+    }
+
+    @Test
+    public void acknowledge_compactsThroughTmpFile() throws IOException {
+        File temporario = new File(log().getPath() + ".tmp");
+        // Resto de uma compactação interrompida antes da troca de arquivos: é ignorado e substituído
+        try (FileOutputStream saida = new FileOutputStream(temporario)) {
+            saida.write(new byte[]{1, 2, 3});
+        }
+
+        PendingWriteQueue fila = new PendingWriteQueue(log(), 4);
+        fila.enqueue(escritas("a", "1", "b", "2", "c", "3"));
+        fila.acknowledge(escritas("a", "1"));
+        assertEquals(3 * tamanhoPut("a", "1") + 18, log().length()); // Ainda sem compactação: 3 PUT e 1 ACK
+
+        fila.acknowledge(escritas("b", "2"));
+        // Compactado: apenas o registro pendente, sem o arquivo temporário
+        assertEquals(tamanhoPut("c", "3"), log().length());
+        assertFalse(temporario.exists());
+
+        // O arquivo continua aberto para acréscimos depois da troca
+        fila.enqueue(escritas("d", "4"));
+        fila.close();
+        assertEquals(tamanhoPut("c", "3") + tamanhoPut("d", "4"), log().length());
+        assertEquals(escritas("c", "3", "d", "4"), new PendingWriteQueue(log()).peek(10));
+    }
+
+    private PendingWriteQueue filaComFalhas() {
+        return new PendingWriteQueue(log()) {
+            @Override
+            FileOutputStream abrirSaida() throws IOException {
+                return new FileOutputStream(log(), true) {
+                    @Override
+                    public void write(byte[] bytes, int inicio, int tamanho) throws IOException {
+                        if (falharGravacao) {
+                            falharGravacao = false;
+                            super.write(bytes, inicio, tamanho / 2);
+                            throw new IOException("Falha simulada");
+                        }
+                        super.write(bytes, inicio, tamanho);
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void enqueue_appendsAfterTornWriteSurviveReload() {
+        PendingWriteQueue fila = filaComFalhas();
+        fila.enqueue(escritas("a", "1"));
+        falharGravacao = true;
+        fila.enqueue(escritas("b", "2")); // Fica um registro parcial no arquivo
+        fila.enqueue(escritas("c", "3"));
+        fila.acknowledge(escritas("a", "1"));
+
+        // Sem fechar a fila, como em uma queda do aplicativo
+        assertEquals(escritas("b", "2", "c", "3"), new PendingWriteQueue(log()).peek(10));
+    }
+
+    @Test
+    public void close_rewritesLogAfterTornWrite() {
+        PendingWriteQueue fila = filaComFalhas();
+        fila.enqueue(escritas("a", "1"));
+        falharGravacao = true;
+        fila.enqueue(escritas("b", "2"));
+        fila.close();
+
+        PendingWriteQueue recarregada = new PendingWriteQueue(log());
+        assertEquals(escritas("a", "1", "b", "2"), recarregada.peek(10));
+        assertEquals(tamanhoPut("a", "1") + tamanhoPut("b", "2"), log().length());
+        recarregada.close();
+    }
+
+    @Test
+    public void close_stopsWritingToLog() {
+        PendingWriteQueue fila = new PendingWriteQueue(log());
+        fila.enqueue(escritas("a", "1"));
+        fila.close();
+        long tamanho = log().length();
+
+        fila.acknowledge(escritas("a", "1"));
+        fila.enqueue(escritas("b", "2"));
+
+        assertEquals(tamanho, log().length());
+        assertEquals(escritas("a", "1"), new PendingWriteQueue(log()).peek(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPositiveCompactionThreshold() {
+        new PendingWriteQueue(log(), 0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.avancada30;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testes do ciclo de vida do RegionStore: política de salvamento antes e depois do encerramento. Nenhum teste
+ * consulta ou grava regiões, de forma que o armazenamento não acessa o Firebase.
+ */
+public class RegionStoreTest {
+
+    @Rule
+    public TemporaryFolder pasta = new TemporaryFolder();
+
+    private RegionStore novoArmazenamento() {
+        PendingWriteQueue fila = new PendingWriteQueue(new File(pasta.getRoot(), RegionServices.PENDING_WRITES_FILE));
+        return new RegionStore(null, new FirebaseDataSaver(null, fila));
+    }
+
+    @Test
+    public void shutdown_completesWithFlushPolicy() throws Exception {
+        RegionStore store = novoArmazenamento();
+        store.setFlushPolicy(RegionStore.DEFAULT_FLUSH_MAX_PENDING, RegionStore.DEFAULT_FLUSH_MAX_DELAY_MILLIS);
+
+        store.shutdown().get();
+        assertSame(store.shutdown(), store.shutdown());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setFlushPolicy_rejectedAfterShutdown() throws Exception {
+        RegionStore store = novoArmazenamento();
+        store.shutdown().get();
+
+        // Sem a verificação, um novo temporizador seria criado e nunca encerrado
+        store.setFlushPolicy(RegionStore.DEFAULT_FLUSH_MAX_PENDING, RegionStore.DEFAULT_FLUSH_MAX_DELAY_MILLIS);
+    }
+}
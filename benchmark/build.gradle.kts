@@ -0,0 +1,48 @@
+// Benchmarks JMH das classes da Biblioteca, executados em uma JVM comum (sem dispositivo Android).
+// A Biblioteca é um módulo Android, então as suas fontes (Java puro) são compiladas diretamente aqui, assim como
+// as classes de serialização e criptografia do app, que não dependem do Android.
+//
+// Execução: ./gradlew :benchmark:jmh
+// Apenas alguns benchmarks: ./gradlew :benchmark:jmh -Pjmh.includes=ProximityScanBenchmark
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../Biblioteca/src/main/java")
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/biblioteca/**",
+                "com/example/avancada30/JsonConverter.java",
+                "com/example/avancada30/CriptografiaAES.java",
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation("com.fasterxml.jackson.core:jackson-databind:2.12.3")
+    // No Android, org.json faz parte da plataforma; na JVM é necessária a biblioteca de referência
+    implementation("org.json:json:20231013")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh.get())
+    (project.findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Os conjuntos de 1 milhão de regiões precisam de mais memória que o padrão da JVM
+    jvmArgs.addAll("-Xms4g", "-Xmx4g")
+    // Bytes alocados por operação (gc.alloc.rate.norm) em todos os benchmarks
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,74 @@
+/**
+ * Benchmark da criptografia AES usada nos registros, isolada da serialização.
+ *
+ * Mede CriptografiaAES.criptografar/descriptografar sobre o JSON completo de uma região (o conteúdo cifrado no
+ * formato versão 2), tanto na forma com String e Base64 quanto diretamente sobre os bytes.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.avancada30.CriptografiaAES;
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionKind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CipherBenchmark {
+
+    @Param({"REGION", "SUB_REGION", "RESTRICTED_REGION"})
+    public RegionKind kind;
+
+    private String json;
+    private byte[] jsonBytes;
+    private String encrypted;
+    private byte[] encryptedBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        RegionDatasets datasets = new RegionDatasets(1);
+        Region mainRegion = datasets.mainRegions(1)[0];
+        Region region = kind == RegionKind.REGION ? mainRegion : datasets.child(mainRegion, kind == RegionKind.SUB_REGION ? 0 : 1);
+        json = new ObjectMapper().writeValueAsString(region);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        encrypted = CriptografiaAES.criptografar(json);
+        encryptedBytes = CriptografiaAES.criptografar(jsonBytes);
+    }
+
+    @Benchmark
+    public String encryptString() throws Exception {
+        return CriptografiaAES.criptografar(json);
+    }
+
+    @Benchmark
+    public String decryptString() throws Exception {
+        return CriptografiaAES.descriptografar(encrypted);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() throws Exception {
+        return CriptografiaAES.criptografar(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() throws Exception {
+        return CriptografiaAES.descriptografar(encryptedBytes);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Benchmark do cálculo de distância das regiões.
+ *
+ * Mede calculateDistance em cada subclasse (Region com limite de 30 metros, SubRegion e RestrictedRegion com limite
+ * de 5 metros), a distância de haversine pura e uma chamada com os três tipos misturados, que é o caso das
+ * varreduras sobre a árvore inteira (chamada megamórfica). Cada grupo de medições tem o seu próprio estado, de
+ * forma que o parâmetro kind só multiplica as medições que dependem dele.
+ *
+ * Mede também withinMeters, o teste de proximidade das consultas à árvore, em cada caminho: a aproximação
+ * equirretangular (raio de até 1 km e latitude de até 80 graus), os pontos na margem de 1% em torno do raio, que
+ * recorrem ao haversine, e os casos fora dos limites da aproximação (latitude alta e raio grande), que usam sempre
+ * o haversine. Para comparação, o mesmo teste é feito pela distância de haversine.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionKind;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@SuppressWarnings("deprecation") // calculateDistance é medido como referência do código legado
+public class DistanceBenchmark {
+    private static final int QUERIES = 1024; // Potência de 2, para o índice circular
+    private static final double METERS_PER_DEGREE = Math.toRadians(1) * 6371000; // O mesmo raio da Terra de Region
+
+    /**
+     * Os casos de withinMeters: o caminho equirretangular, a margem em torno do raio e os dois limites da aproximação.
+     */
+    public enum ProximityCase {
+        FAST_PATH(RegionDatasets.CENTER_LATITUDE, 30, 1.0), // Pontos a até 2 raios; quase todos decididos sem haversine
+        NEAR_RADIUS(RegionDatasets.CENTER_LATITUDE, 30, 0.01), // Pontos dentro da margem de 1%: sempre haversine
+        HIGH_LATITUDE(85, 30, 1.0), // Acima de 80 graus: sempre haversine
+        LARGE_RADIUS(RegionDatasets.CENTER_LATITUDE, 5000, 1.0); // Acima de 1 km: sempre haversine
+
+        final double latitude;
+        final double radiusMeters;
+        final double spread; // Os pontos ficam a radiusMeters * (1 ± spread) do centro
+
+        ProximityCase(double latitude, double radiusMeters, double spread) {
+            this.latitude = latitude;
+            this.radiusMeters = radiusMeters;
+            this.spread = spread;
+        }
+    }
+
+    /**
+     * Estado das medições de um único tipo de região.
+     */
+    @State(Scope.Thread)
+    public static class SingleKind {
+        @Param({"REGION", "SUB_REGION", "RESTRICTED_REGION"})
+        public RegionKind kind;
+
+        private Region region;
+        private double[] latitudes;
+        private double[] longitudes;
+        private int next;
+
+        @Setup
+        public void setup() {
+            RegionDatasets datasets = new RegionDatasets(QUERIES);
+            Region mainRegion = datasets.mainRegions(1)[0];
+            Region subRegion = datasets.child(mainRegion, 0);
+            Region restrictedRegion = datasets.child(mainRegion, 1);
+            switch (kind) {
+                case SUB_REGION:
+                    region = subRegion;
+                    break;
+                case RESTRICTED_REGION:
+                    region = restrictedRegion;
+                    break;
+                default:
+                    region = mainRegion;
+                    break;
+            }
+            double[][] queries = datasets.queries(QUERIES);
+            latitudes = queries[0];
+            longitudes = queries[1];
+        }
+    }
+
+    /**
+     * Estado da chamada com os três tipos misturados, que não depende do parâmetro kind.
+     */
+    @State(Scope.Thread)
+    public static class MixedKinds {
+        private Region[] mixed;
+        private double[] latitudes;
+        private double[] longitudes;
+        private int next;
+
+        @Setup
+        public void setup() {
+            RegionDatasets datasets = new RegionDatasets(QUERIES);
+            Region mainRegion = datasets.mainRegions(1)[0];
+            Region subRegion = datasets.child(mainRegion, 0);
+            Region restrictedRegion = datasets.child(mainRegion, 1);
+            mixed = new Region[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                mixed[i] = i % 3 == 0 ? mainRegion : i % 3 == 1 ? subRegion : restrictedRegion;
+            }
+            double[][] queries = datasets.queries(QUERIES);
+            latitudes = queries[0];
+            longitudes = queries[1];
+        }
+    }
+
+    /**
+     * Estado de withinMeters: uma região e pontos a distâncias sorteadas em torno do raio do caso.
+     */
+    @State(Scope.Thread)
+    public static class Proximity {
+        @Param({"FAST_PATH", "NEAR_RADIUS", "HIGH_LATITUDE", "LARGE_RADIUS"})
+        public ProximityCase proximityCase;
+
+        private Region region;
+        private double radiusMeters;
+        private double[] latitudes;
+        private double[] longitudes;
+        private int next;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(RegionDatasets.SEED);
+            region = new Region("Centro", proximityCase.latitude, RegionDatasets.CENTER_LONGITUDE, 0L, 0);
+            radiusMeters = proximityCase.radiusMeters;
+            double cosLatitude = Math.cos(Math.toRadians(region.getLatitude()));
+            latitudes = new double[QUERIES];
+            longitudes = new double[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                double distance = radiusMeters * (1 + (random.nextDouble() * 2 - 1) * proximityCase.spread);
+                double bearing = random.nextDouble() * 2 * Math.PI;
+                latitudes[i] = region.getLatitude() + distance * Math.cos(bearing) / METERS_PER_DEGREE;
+                longitudes[i] = region.getLongitude() + distance * Math.sin(bearing) / (METERS_PER_DEGREE * cosLatitude);
+            }
+        }
+    }
+
+    @Benchmark
+    public Boolean calculateDistance(SingleKind state) {
+        int i = state.next++ & (QUERIES - 1);
+        Region region = state.region;
+        return region.calculateDistance(region.getLatitude(), region.getLongitude(), state.latitudes[i], state.longitudes[i]);
+    }
+
+    @Benchmark
+    public double distanceMeters(SingleKind state) {
+        int i = state.next++ & (QUERIES - 1);
+        return state.region.distanceMeters(state.latitudes[i], state.longitudes[i]);
+    }
+
+    @Benchmark
+    public Boolean calculateDistanceMixedKinds(MixedKinds state) {
+        int i = state.next++ & (QUERIES - 1);
+        Region atual = state.mixed[i];
+        return atual.calculateDistance(atual.getLatitude(), atual.getLongitude(), state.latitudes[i], state.longitudes[i]);
+    }
+
+    @Benchmark
+    public boolean withinMeters(Proximity state) {
+        int i = state.next++ & (QUERIES - 1);
+        return state.region.withinMeters(state.latitudes[i], state.longitudes[i], state.radiusMeters);
+    }
+
+    @Benchmark
+    public boolean withinMetersByHaversine(Proximity state) {
+        int i = state.next++ & (QUERIES - 1);
+        return state.region.distanceMeters(state.latitudes[i], state.longitudes[i]) < state.radiusMeters;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Benchmark da inserção de regiões.
+ *
+ * Mede a construção de uma RegionTree com todas as regiões do conjunto e a inserção de um pequeno lote de regiões
+ * novas em uma árvore grande, comparando a antiga junção de listas (listaBD.addAll(regions); regions.clear();
+ * regions.addAll(listaBD), que copiava a lista inteira a cada nova localização) com RegionTree.merge, que insere
+ * apenas as regiões novas.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InsertionBenchmark {
+    private static final int DELTA_SIZE = 10; // Regiões novas por junção
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Region> mainRegions;
+    private List<List<Region>> children;
+    private RegionTree tree;
+    private List<Region> list;
+    private RegionTree delta;
+    private List<Region> deltaList;
+
+    @Setup
+    public void setup() {
+        RegionDatasets datasets = new RegionDatasets(size);
+        tree = datasets.tree();
+        list = tree.toList();
+        mainRegions = new ArrayList<>(tree.mainRegions());
+        children = new ArrayList<>(mainRegions.size());
+        for (Region mainRegion : mainRegions) {
+            children.add(tree.getChildren(mainRegion));
+        }
+        delta = new RegionTree();
+        for (Region mainRegion : datasets.mainRegions(DELTA_SIZE)) {
+            delta.addRegion(mainRegion);
+        }
+        deltaList = delta.toList();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RegionTree buildTree() {
+        RegionTree built = new RegionTree();
+        for (int i = 0; i < mainRegions.size(); i++) {
+            Region mainRegion = mainRegions.get(i);
+            built.addRegion(mainRegion);
+            for (Region child : children.get(i)) {
+                built.addChild(mainRegion, child);
+            }
+        }
+        return built;
+    }
+
+    @Benchmark
+    public List<Region> legacyListMerge() {
+        List<Region> listaBD = new ArrayList<>(list); // Lista recebida do banco a cada nova localização
+        List<Region> regions = new ArrayList<>(deltaList);
+        listaBD.addAll(regions);
+        regions.clear();
+        regions.addAll(listaBD);
+        return regions;
+    }
+
+    // Inclui a remoção das regiões inseridas, para que a árvore volte ao estado inicial a cada chamada
+    @Benchmark
+    public int treeMerge() {
+        int inseridas = tree.merge(delta);
+        for (Region mainRegion : delta.mainRegions()) {
+            tree.removeRegion(mainRegion);
+        }
+        return inseridas;
+    }
+}
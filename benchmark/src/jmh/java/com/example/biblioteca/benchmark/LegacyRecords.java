@@ -0,0 +1,65 @@
+/**
+ * Gravação dos registros nos formatos legados (versões 1 e 2) do nó "regioes", usada apenas pelos benchmarks.
+ *
+ * O aplicativo grava somente a versão 3 e apenas lê os formatos anteriores; estes métodos reproduzem como os
+ * registros antigos eram gravados, para que a leitura de cada formato possa ser medida.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.avancada30.CriptografiaAES;
+import com.example.avancada30.JsonConverter;
+import com.example.biblioteca.Region;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+final class LegacyRecords {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LegacyRecords() {
+    }
+
+    /**
+     * Registro versão 1: o JSON da região com o valor de cada atributo criptografado separadamente.
+     */
+    static String perField(Region region) throws Exception {
+        JSONObject jsonObject = new JSONObject(objectMapper.writeValueAsString(region));
+        Iterator<String> keys = jsonObject.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (jsonObject.get(key) instanceof JSONObject) {
+                // Atributos da região principal embutida
+                JSONObject innerObject = jsonObject.getJSONObject(key);
+                Iterator<String> innerKeys = innerObject.keys();
+                while (innerKeys.hasNext()) {
+                    String innerKey = innerKeys.next();
+                    innerObject.put(innerKey, CriptografiaAES.criptografar(innerObject.get(innerKey).toString()));
+                }
+            } else {
+                jsonObject.put(key, CriptografiaAES.criptografar(jsonObject.get(key).toString()));
+            }
+        }
+        return jsonObject.toString();
+    }
+
+    /**
+     * Registro versão 2: {"v": 2, "data": ...}, com o JSON completo da região criptografado em uma única operação.
+     */
+    static String json(Region region) throws Exception {
+        String json = objectMapper.writeValueAsString(region);
+        byte[] encrypted = CriptografiaAES.criptografar(json.getBytes(StandardCharsets.UTF_8));
+        JSONObject record = new JSONObject();
+        record.put("v", JsonConverter.FORMAT_VERSION);
+        record.put("data", Base64.getEncoder().encodeToString(encrypted));
+        return record.toString();
+    }
+}
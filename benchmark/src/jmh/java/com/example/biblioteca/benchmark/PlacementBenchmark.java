@@ -0,0 +1,71 @@
+/**
+ * Benchmark da decisão de posicionamento de uma nova localização (RegionPlacementEngine).
+ *
+ * Mede a decisão completa feita a cada localização salva (região principal a menos de 30 metros, sub-regiões a
+ * menos de 5 metros e alternância do tipo) sobre conjuntos de mil a um milhão de regiões, com e sem uma árvore
+ * local de regiões pendentes.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionPlacementEngine;
+import com.example.biblioteca.RegionTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlacementBenchmark {
+    private static final int QUERIES = 1024; // Potência de 2, para o índice circular
+    private static final int LOCAL_REGIONS = 30; // Regiões pendentes típicas entre dois salvamentos
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private final RegionPlacementEngine engine = new RegionPlacementEngine();
+    private RegionTree server;
+    private RegionTree local;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        RegionDatasets datasets = new RegionDatasets(size);
+        server = datasets.tree();
+        local = new RegionTree();
+        for (Region mainRegion : datasets.mainRegions(LOCAL_REGIONS)) {
+            local.addRegion(mainRegion);
+        }
+        double[][] queries = datasets.queries(QUERIES);
+        latitudes = queries[0];
+        longitudes = queries[1];
+    }
+
+    @Benchmark
+    public RegionPlacementEngine.Decision decideServerOnly() {
+        int i = next++ & (QUERIES - 1);
+        return engine.decide(server, latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public RegionPlacementEngine.Decision decideWithLocal() {
+        int i = next++ & (QUERIES - 1);
+        return engine.decide(server, local, latitudes[i], longitudes[i]);
+    }
+}
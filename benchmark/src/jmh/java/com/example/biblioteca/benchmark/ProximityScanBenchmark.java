@@ -0,0 +1,84 @@
+/**
+ * Benchmark das verificações de proximidade feitas a cada nova localização.
+ *
+ * Compara a varredura linear da antiga lista de regiões (verificaLista/verificaBanco, que chamavam calculateDistance
+ * em todos os elementos até encontrar uma região principal a menos de 30 metros) com a busca no RegionGridIndex da
+ * RegionTree, e mede a busca completa usada hoje pelo RegionStore: região principal a menos de 30 metros seguida da
+ * verificação das suas sub-regiões a menos de 5 metros.
+ *
+ * Os conjuntos têm de mil a um milhão de regiões (principais e sub-regiões).
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionKind;
+import com.example.biblioteca.RegionTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("deprecation") // calculateDistance é medido como referência do código legado
+public class ProximityScanBenchmark {
+    private static final int QUERIES = 1024; // Potência de 2, para o índice circular
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private RegionTree tree;
+    private List<Region> list; // Layout da antiga lista: região principal seguida de suas sub-regiões
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+
+    @Setup
+    public void setup() {
+        RegionDatasets datasets = new RegionDatasets(size);
+        tree = datasets.tree();
+        list = tree.toList();
+        double[][] queries = datasets.queries(QUERIES);
+        latitudes = queries[0];
+        longitudes = queries[1];
+    }
+
+    @Benchmark
+    public Region linearScan() {
+        int i = next++ & (QUERIES - 1);
+        for (Region region : list) {
+            if (region.kind() == RegionKind.REGION
+                    && !region.calculateDistance(region.getLatitude(), region.getLongitude(), latitudes[i], longitudes[i])) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Region gridIndex() {
+        int i = next++ & (QUERIES - 1);
+        return tree.findMainRegionWithin(latitudes[i], longitudes[i], 30);
+    }
+
+    @Benchmark
+    public boolean gridIndexWithChildren() {
+        int i = next++ & (QUERIES - 1);
+        Region mainRegion = tree.findMainRegionWithin(latitudes[i], longitudes[i], 30);
+        return mainRegion != null && tree.hasChildWithin(mainRegion, latitudes[i], longitudes[i], 5);
+    }
+}
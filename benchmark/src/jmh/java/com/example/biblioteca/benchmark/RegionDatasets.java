@@ -0,0 +1,112 @@
+/**
+ * Conjuntos sintéticos de regiões para os benchmarks.
+ *
+ * As regiões principais são distribuídas uniformemente em um quadrado centrado em Belo Horizonte, com o lado
+ * ajustado ao número de regiões para que a densidade seja a mesma em todos os tamanhos (uma região principal a cada
+ * 100 x 100 metros, em média). Cada região principal recebe sub-regiões a até 25 metros, alternando SubRegion e
+ * RestrictedRegion como no aplicativo. Todos os conjuntos são gerados com semente fixa e são reprodutíveis.
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionTree;
+import com.example.biblioteca.RestrictedRegion;
+import com.example.biblioteca.SubRegion;
+
+import java.util.Random;
+
+final class RegionDatasets {
+    static final double CENTER_LATITUDE = -19.9167;
+    static final double CENTER_LONGITUDE = -43.9345;
+    static final int CHILDREN_PER_MAIN = 2;
+    static final long SEED = 42;
+    private static final double METERS_PER_DEGREE = 111320;
+    private static final double MAIN_SPACING_METERS = 100;
+    private static final double CHILD_OFFSET_METERS = 25;
+
+    private final Random random;
+    private final int mainCount;
+    private final double halfSideDegrees;
+    private long timestamp = 0;
+
+    /**
+     * @param totalRegions O número total de regiões (principais e sub-regiões) do conjunto.
+     */
+    RegionDatasets(int totalRegions) {
+        this(totalRegions, SEED);
+    }
+
+    RegionDatasets(int totalRegions, long seed) {
+        this.random = new Random(seed);
+        this.mainCount = Math.max(1, totalRegions / (1 + CHILDREN_PER_MAIN));
+        this.halfSideDegrees = Math.sqrt(mainCount) * MAIN_SPACING_METERS / 2 / METERS_PER_DEGREE;
+    }
+
+    /**
+     * Gera a árvore com as regiões principais e as suas sub-regiões.
+     */
+    RegionTree tree() {
+        RegionTree tree = new RegionTree();
+        for (Region mainRegion : mainRegions(mainCount)) {
+            tree.addRegion(mainRegion);
+            for (int i = 0; i < CHILDREN_PER_MAIN; i++) {
+                tree.addChild(mainRegion, child(mainRegion, i));
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Gera regiões principais na área do conjunto, sem sub-regiões.
+     */
+    Region[] mainRegions(int count) {
+        Region[] regions = new Region[count];
+        for (int i = 0; i < count; i++) {
+            regions[i] = new Region("Região " + i, randomLatitude(), randomLongitude(), timestamp++, random.nextInt(1000));
+        }
+        return regions;
+    }
+
+    /**
+     * Gera uma sub-região a até 25 metros da região principal; o tipo alterna conforme a posição.
+     */
+    Region child(Region mainRegion, int position) {
+        double latitude = mainRegion.getLatitude() + offsetDegrees();
+        double longitude = mainRegion.getLongitude() + offsetDegrees();
+        String name = mainRegion.getName() + "/" + position;
+        if (position % 2 == 0) {
+            return new SubRegion(name, latitude, longitude, random.nextInt(1000), timestamp++, mainRegion);
+        }
+        return new RestrictedRegion(name, latitude, longitude, random.nextInt(1000), timestamp++, true, mainRegion);
+    }
+
+    /**
+     * Gera coordenadas de consulta na mesma área das regiões, no formato {latitudes, longitudes}.
+     */
+    double[][] queries(int count) {
+        double[][] queries = new double[2][count];
+        for (int i = 0; i < count; i++) {
+            queries[0][i] = randomLatitude();
+            queries[1][i] = randomLongitude();
+        }
+        return queries;
+    }
+
+    private double randomLatitude() {
+        return CENTER_LATITUDE + (random.nextDouble() * 2 - 1) * halfSideDegrees;
+    }
+
+    private double randomLongitude() {
+        double cosLatitude = Math.cos(Math.toRadians(CENTER_LATITUDE));
+        return CENTER_LONGITUDE + (random.nextDouble() * 2 - 1) * halfSideDegrees / cosLatitude;
+    }
+
+    private double offsetDegrees() {
+        return (random.nextDouble() * 2 - 1) * CHILD_OFFSET_METERS / Math.sqrt(2) / METERS_PER_DEGREE;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Benchmark da conversão das regiões para os registros criptografados do nó "regioes" e de volta.
+ *
+ * Compara, lado a lado, os três formatos aceitos pelo JsonConverter para Region, SubRegion e RestrictedRegion:
+ * - PER_FIELD (versão 1, legado): JSON com cada atributo criptografado separadamente.
+ * - JSON (versão 2): JSON completo criptografado em uma única operação.
+ * - BINARY (versão 3): codificação do RegionCodec criptografada em uma única operação.
+ *
+ * Os registros legados são gravados pelo LegacyRecords, pois o aplicativo grava apenas a versão 3.
+ * A decodificação é a mesma feita para cada registro pelo ConsultDatabase e pela RegionReplica.
+ * Com o profiler gc (configurado no build.gradle.kts), o relatório inclui os bytes alocados por registro
+ * (gc.alloc.rate.norm).
+ *
+ * Autor: Leonardo Monteiro
+ * Data: 18/10/2026
+ */
+
+
+package com.example.biblioteca.benchmark;
+
+import com.example.avancada30.JsonConverter;
+import com.example.biblioteca.Region;
+import com.example.biblioteca.RegionCodec;
+import com.example.biblioteca.RegionKind;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+
+    public enum Format {
+        PER_FIELD, JSON, BINARY
+    }
+
+    @Param({"REGION", "SUB_REGION", "RESTRICTED_REGION"})
+    public RegionKind kind;
+
+    @Param({"PER_FIELD", "JSON", "BINARY"})
+    public Format format;
+
+    private Region region;
+    private String record;
+    private RegionCodec.MainRegionResolver resolver;
+
+    @Setup
+    public void setup() throws Exception {
+        RegionDatasets datasets = new RegionDatasets(1);
+        final Region mainRegion = datasets.mainRegions(1)[0];
+        mainRegion.setStorageKey("-NmainRegionKey00000");
+        switch (kind) {
+            case SUB_REGION:
+                region = datasets.child(mainRegion, 0);
+                break;
+            case RESTRICTED_REGION:
+                region = datasets.child(mainRegion, 1);
+                break;
+            default:
+                region = mainRegion;
+                break;
+        }
+        resolver = new RegionCodec.MainRegionResolver() {
+            @Override
+            public Region resolve(String storageKey) {
+                return mainRegion;
+            }
+        };
+        record = encode();
+        if (record == null) {
+            throw new IllegalStateException("Falha ao codificar a região no formato " + format);
+        }
+    }
+
+    @Benchmark
+    public String encode() throws Exception {
+        switch (format) {
+            case PER_FIELD:
+                return LegacyRecords.perField(region);
+            case JSON:
+                return LegacyRecords.json(region);
+            default:
+                return JsonConverter.regionToJsonEncrypted(region);
+        }
+    }
+
+    @Benchmark
+    public Region decode() throws Exception {
+        return JsonConverter.decryptRegionRecord(record).toRegion(resolver);
+    }
+}
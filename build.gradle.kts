@@ -7,5 +7,6 @@ buildscript {
 plugins {
     alias(libs.plugins.androidApplication) apply false
     alias(libs.plugins.androidLibrary) apply false
+    alias(libs.plugins.jmh) apply false
 
 }
\ No newline at end of file
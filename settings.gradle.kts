@@ -29,3 +29,4 @@ dependencyResolutionManagement {
 rootProject.name = "Avancada3.0"
 include(":app")
 include(":Biblioteca")
+include(":benchmark")